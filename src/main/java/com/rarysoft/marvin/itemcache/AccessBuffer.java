@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * <p>
+ * Records accesses to cached items in striped ring buffers, so that reading an item does not have to
+ * write to the map holding it. Each thread records into one of the stripes, chosen by its identifier,
+ * and the recorded accesses are drained in batches.
+ * </p>
+ * <p>
+ * The buffers are lossy. An access is dropped, rather than waiting, if its stripe is full or another
+ * thread is recording into the same slot at the same moment. Only one thread drains at a time.
+ * </p>
+ */
+class AccessBuffer {
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final ReentrantLock drainLock;
+
+    AccessBuffer(int stripes, int capacity) {
+        int stripeCount = powerOfTwo(stripes);
+        this.stripes = new Stripe[stripeCount];
+        for (int stripe = 0; stripe < stripeCount; stripe ++) {
+            this.stripes[stripe] = new Stripe(powerOfTwo(capacity));
+        }
+        this.stripeMask = stripeCount - 1;
+        this.drainLock = new ReentrantLock();
+    }
+
+    /**
+     * Records an access to an item.
+     * @param id The unique identifier of the item accessed.
+     * @param accessed The time at which the item was accessed.
+     * @return False if the stripe of the calling thread is full and the access was dropped.
+     */
+    boolean offer(Serializable id, long accessed) {
+        return this.stripes[(int) Thread.currentThread().getId() & this.stripeMask].offer(id, accessed);
+    }
+
+    /**
+     * Drains the recorded accesses, in the order recorded within each stripe, waiting for any other
+     * thread that is draining to finish first.
+     * @param consumer The consumer to which to pass each access.
+     */
+    void drain(ObjLongConsumer<Serializable> consumer) {
+        this.drainLock.lock();
+        try {
+            for (Stripe stripe : this.stripes) {
+                stripe.drain(consumer);
+            }
+        }
+        finally {
+            this.drainLock.unlock();
+        }
+    }
+
+    /**
+     * Drains the recorded accesses, unless another thread is already draining them.
+     * @param consumer The consumer to which to pass each access.
+     */
+    void tryDrain(ObjLongConsumer<Serializable> consumer) {
+        if (! this.drainLock.tryLock()) {
+            return;
+        }
+        try {
+            for (Stripe stripe : this.stripes) {
+                stripe.drain(consumer);
+            }
+        }
+        finally {
+            this.drainLock.unlock();
+        }
+    }
+
+    private static int powerOfTwo(int count) {
+        return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
+
+    private static class Stripe {
+        private final AtomicReferenceArray<Serializable> ids;
+        private final long[] accessed;
+        private final int mask;
+        private final AtomicLong tail;
+
+        private volatile long head;
+
+        private Stripe(int capacity) {
+            this.ids = new AtomicReferenceArray<>(capacity);
+            this.accessed = new long[capacity];
+            this.mask = capacity - 1;
+            this.tail = new AtomicLong();
+        }
+
+        private boolean offer(Serializable id, long accessed) {
+            long tail = this.tail.get();
+            if (tail - this.head > this.mask) {
+                return false;
+            }
+            if (this.tail.compareAndSet(tail, tail + 1)) {
+                int slot = (int) tail & this.mask;
+                this.accessed[slot] = accessed;
+                this.ids.lazySet(slot, id);
+            }
+            return true;
+        }
+
+        private void drain(ObjLongConsumer<Serializable> consumer) {
+            long head = this.head;
+            long tail = this.tail.get();
+            for (; head < tail; head ++) {
+                int slot = (int) head & this.mask;
+                Serializable id = this.ids.get(slot);
+                if (id == null) {
+                    break;
+                }
+                consumer.accept(id, this.accessed[slot]);
+                this.ids.lazySet(slot, null);
+            }
+            this.head = head;
+        }
+    }
+}
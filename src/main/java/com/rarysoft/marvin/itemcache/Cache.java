@@ -25,8 +25,18 @@ package com.rarysoft.marvin.itemcache;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +62,18 @@ import java.util.stream.Collectors;
  * The cache tracks its state is either not fully populated or fully populated. A fully populated cache is
  * one that is a complete replica. Some methods are unavailable on a not fully populated cache.
  * <p>
+ * Methods that block, waiting for the cache to become populated, wait on a
+ * {@link java.util.concurrent.locks.Condition} rather than an object monitor, so that waiting virtual
+ * threads release their carrier threads on Java 21 and later.
+ * </p>
+ * <p>
+ * Methods that only read the cache, such as {@link Cache#get(Serializable)}, {@link Cache#contains(Serializable)},
+ * {@link Cache#size()} and {@link Cache#all()}, do not lock. They read optimistically, and only wait for a lock
+ * if a change is made to the cache while they are reading, so that reads of a fully populated cache that is
+ * rarely changed do not contend with each other. When soft or weak values are enabled, reads lock briefly to
+ * clear out any reclaimed items first.
+ * </p>
+ * <p>
  * Meta-data is attached to the items internally to monitor when they were added to the cache, when they
  * were last accessed, and when they were last modified. This meta-data is not visible outside the cache,
  * but can be used to evict items from the cache.
@@ -59,12 +81,43 @@ import java.util.stream.Collectors;
  * @param <T> The type of item to store in the cache.
  */
 public class Cache<T> {
+    private static final int MISSING_PURGE_THRESHOLD = 1024;
+    private static final int WEIGHT_HEADROOM_DIVISOR = 16;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition populated = this.lock.newCondition();
+    private final StampedLock stampedLock = new StampedLock();
+
     private final TimestampGenerator timestampGenerator;
     private final Function<T, Serializable> idExtractor;
     private final Map<Serializable, CachedItem<T>> all;
     private final Map<Serializable, CachedItem<T>> partial;
+    private final Map<String, CacheIndex<T>> indexes;
+    private final Map<Serializable, Long> missing;
+    private final Map<Serializable, Long> weights;
 
+    private final Set<Serializable> refreshing;
+    private final List<CacheListener<T>> listeners;
+    private final List<RemovalDispatcher<T>> removalListeners;
+    private CountingBloomFilter membershipFilter;
+    private RefreshAhead<T> refreshAhead;
+    private StaleWhileRevalidate<T> staleWhileRevalidate;
+    private WeightLimit<T> weightLimit;
+    private ItemReferences<T> itemReferences;
+    private Interner<T> interner;
+    private StatsCounter stats;
+    private HotKeyTracker hotKeys;
+    private AccessBuffer accessBuffer;
+    private int accessSampleRate = 1;
+    private long weight;
+    private Collection<T> staleItems;
+    private long staleItemsTimestamp;
+    private Long version;
+    private boolean repopulating;
     private boolean fullyPopulated;
+    private int missingPurgeThreshold = MISSING_PURGE_THRESHOLD;
+    private long writeStamp;
+    private long itemVersion;
 
     /**
      * <p>
@@ -79,8 +132,14 @@ public class Cache<T> {
     public Cache(Function<T, Serializable> idExtractor) {
         this.timestampGenerator = new SystemTimestampGenerator();
         this.idExtractor = idExtractor;
-        this.all = new HashMap<>();
-        this.partial = new HashMap<>();
+        this.all = new ConcurrentHashMap<>();
+        this.partial = new ConcurrentHashMap<>();
+        this.indexes = new HashMap<>();
+        this.missing = new ConcurrentHashMap<>();
+        this.weights = new HashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.removalListeners = new CopyOnWriteArrayList<>();
         this.fullyPopulated = false;
     }
 
@@ -104,10 +163,16 @@ public class Cache<T> {
     public Cache(Function<T, Serializable> idExtractor, Collection<T> all) {
         this.timestampGenerator = new SystemTimestampGenerator();
         this.idExtractor = idExtractor;
-        this.all = new HashMap<>();
-        this.partial = new HashMap<>();
+        this.all = new ConcurrentHashMap<>();
+        this.partial = new ConcurrentHashMap<>();
+        this.indexes = new HashMap<>();
+        this.missing = new ConcurrentHashMap<>();
+        this.weights = new HashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.removalListeners = new CopyOnWriteArrayList<>();
         this.fullyPopulated = true;
-        all.forEach(item -> this.all.put(this.idExtractor.apply(item), new CachedItem<>(item, timestampGenerator.timestamp())));
+        all.forEach(item -> this.all.put(this.idExtractor.apply(item), this.created(item)));
     }
 
     /**
@@ -124,8 +189,14 @@ public class Cache<T> {
     public Cache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor) {
         this.timestampGenerator = timestampGenerator;
         this.idExtractor = idExtractor;
-        this.all = new HashMap<>();
-        this.partial = new HashMap<>();
+        this.all = new ConcurrentHashMap<>();
+        this.partial = new ConcurrentHashMap<>();
+        this.indexes = new HashMap<>();
+        this.missing = new ConcurrentHashMap<>();
+        this.weights = new HashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.removalListeners = new CopyOnWriteArrayList<>();
         this.fullyPopulated = false;
     }
 
@@ -150,10 +221,16 @@ public class Cache<T> {
     public Cache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor, Collection<T> all) {
         this.timestampGenerator = timestampGenerator;
         this.idExtractor = idExtractor;
-        this.all = new HashMap<>();
-        this.partial = new HashMap<>();
+        this.all = new ConcurrentHashMap<>();
+        this.partial = new ConcurrentHashMap<>();
+        this.indexes = new HashMap<>();
+        this.missing = new ConcurrentHashMap<>();
+        this.weights = new HashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.removalListeners = new CopyOnWriteArrayList<>();
         this.fullyPopulated = true;
-        all.forEach(item -> this.all.put(this.idExtractor.apply(item), new CachedItem<>(item, timestampGenerator.timestamp())));
+        all.forEach(item -> this.all.put(this.idExtractor.apply(item), this.created(item)));
     }
 
     /**
@@ -175,10 +252,13 @@ public class Cache<T> {
      * @throws IllegalStateException If the cache is not fully populated.
      */
     public Collection<T> all() {
-        if (! this.fullyPopulated) {
+        this.expunge();
+        Collection<T> all = this.read(this::allIfComplete);
+        if (all == null) {
+            this.collectCleared();
             throw new IllegalStateException("Attempt to retrieve all from a partial cache");
         }
-        return this.allItems();
+        return all;
     }
 
     /**
@@ -199,26 +279,49 @@ public class Cache<T> {
      * the items immediately. In this case, the timeout argument has no effect.
      * </p>
      * <p>
+     * If stale while revalidate has been enabled using the
+     * {@link Cache#enableStaleWhileRevalidate(long, AllItemsLoader, Executor)} method, and the cache
+     * was fully populated recently enough, the method will instead return the items that were in the
+     * cache when it was last fully populated immediately, while the cache is repopulated in the
+     * background.
+     * </p>
      * @param timeoutInMillis The number of milliseconds to wait for the cache to become fully
      *                        populated, if it is not already fully populated.
      * @return A collection of cached items that represents all items in the remote repository.
      * @throws PollingTimeout If the timeout period lapses without the cache being put into a
      *                        fully populated state.
      */
-    public synchronized Collection<T> all(long timeoutInMillis) throws PollingTimeout {
-        if (this.fullyPopulated) {
-            return this.allItems();
+    public Collection<T> all(long timeoutInMillis) throws PollingTimeout {
+        if (this.staleWhileRevalidate != null) {
+            this.repopulate();
         }
-        try {
-            this.wait(timeoutInMillis);
+        this.expunge();
+        Collection<T> all = this.read(this::allIfComplete);
+        if (all != null) {
+            return all;
         }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        this.lockForWrite();
+        try {
+            all = this.allIfComplete();
+            if (all != null) {
+                return all;
+            }
+            this.collectCleared();
+            if (this.staleWhileRevalidate != null && this.staleItems != null && this.staleItemsTimestamp >= timestampGenerator.timestamp() - this.staleWhileRevalidate.maxStaleMillis) {
+                return this.staleItems;
+            }
+            this.await(() -> this.fullyPopulated, timeoutInMillis);
+            this.expunge();
+            all = this.allIfComplete();
+            if (all == null) {
+                this.collectCleared();
+                throw new PollingTimeout();
+            }
+            return all;
         }
-        if (! this.fullyPopulated) {
-            throw new PollingTimeout();
+        finally {
+            this.unlockForWrite();
         }
-        return this.allItems();
     }
 
     /**
@@ -232,15 +335,136 @@ public class Cache<T> {
      * to the {@link Cache#all(long)} method will become unblocked and return a collection that
      * matches the one that was provided to this method.
      * </p>
+     * <p>
+     * If the collection contains two items with the same key in a unique index, the cache is left
+     * empty and in a not fully populated state, and an {@link IllegalStateException} is thrown.
+     * </p>
      * @param all A collection of items to store in the cache that represents all items in the remote
      *            repository.
+     * @throws IllegalStateException If two of the items have the same key in a unique index.
      */
-    public synchronized void setAll(Collection<T> all) {
-        this.all.clear();
-        this.partial.clear();
-        this.fullyPopulated = true;
-        all.forEach(item -> this.all.put(this.idExtractor.apply(item), new CachedItem<>(item, timestampGenerator.timestamp())));
-        this.notifyAll();
+    public void setAll(Collection<T> all) {
+        this.lockForWrite();
+        try {
+            this.populate(all, null);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Stores a complete collection of items in the cache, as described by the
+     * {@link Cache#setAll(Collection)} method, and records the version of the remote repository that
+     * the collection represents.
+     * </p>
+     * <p>
+     * Recording the version allows the cache to be brought up to date later by applying only the
+     * changes made since that version, using the
+     * {@link Cache#sync(long, long, Collection, Collection)} method.
+     * </p>
+     * @param all A collection of items to store in the cache that represents all items in the remote
+     *            repository.
+     * @param version The version of the remote repository that the collection represents.
+     * @throws IllegalStateException If two of the items have the same key in a unique index.
+     */
+    public void setAll(Collection<T> all, long version) {
+        this.lockForWrite();
+        try {
+            this.populate(all, version);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the version of the remote repository that the cache represents, if known.
+     * </p>
+     * <p>
+     * The version is recorded by the {@link Cache#setAll(Collection, long)} and
+     * {@link Cache#sync(long, long, Collection, Collection)} methods. It is kept if the cache
+     * reverts to a not fully populated state due to a failed update or delete, since the cache
+     * still holds every item of that version along with any later changes. It is forgotten if any
+     * items are evicted, since the evicted items could then not be restored by applying changes.
+     * </p>
+     * @return The version of the remote repository that the cache represents, or an empty result if
+     *         not known.
+     */
+    public OptionalLong getVersion() {
+        Long version = this.read(() -> this.version);
+        return version == null ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    /**
+     * <p>
+     * Brings the cache up to date with the remote repository by applying the changes made to the
+     * remote repository between two versions.
+     * </p>
+     * <p>
+     * If the cache represents the version from which the changes were made, as reported by the
+     * {@link Cache#getVersion()} method, then the provided items are added or updated, the items with
+     * the provided identifiers are removed, the cache records the version to which the changes were
+     * made, and the cache is left in a fully populated state. Other threads that are blocked waiting
+     * for the cache to become fully populated become unblocked, as with the
+     * {@link Cache#setAll(Collection)} method. Any change that the cache has already applied is simply
+     * applied again. Each added, updated and removed item is reported to listeners as
+     * {@link CacheEvent.Type#RELOADED}, followed by {@link CacheEvent.Type#REPOPULATED}.
+     * </p>
+     * <p>
+     * Otherwise, nothing is changed, and the cache must be repopulated using the
+     * {@link Cache#setAll(Collection, long)} method.
+     * </p>
+     * @param fromVersion The version from which the changes were made.
+     * @param toVersion The version to which the changes were made.
+     * @param items The items added or updated between the two versions.
+     * @param deletedIds The unique identifiers of the items deleted between the two versions.
+     * @return An indication of whether or not the changes were applied.
+     * @throws IllegalStateException If an item has the same key in a unique index as a different
+     *                               cached item, in which case the cache is left empty and in a not
+     *                               fully populated state.
+     */
+    public boolean sync(long fromVersion, long toVersion, Collection<T> items, Collection<Serializable> deletedIds) {
+        this.lockForWrite();
+        try {
+            if (this.version == null || this.version != fromVersion) {
+                return false;
+            }
+            if (! this.fullyPopulated) {
+                this.all.putAll(this.partial);
+                this.partial.clear();
+                this.staleItems = null;
+                this.fullyPopulated = true;
+            }
+            try {
+                deletedIds.forEach(id -> {
+                    if (this.all.containsKey(id)) {
+                        this.remove(id, RemovalCause.EXPLICIT);
+                        this.fire(CacheEvent.Type.RELOADED, id, null);
+                    }
+                });
+                items.forEach(item -> {
+                    Serializable id = this.idExtractor.apply(item);
+                    CachedItem<T> cachedItem = this.all.get(id);
+                    this.store(id, cachedItem == null ? this.created(item) : this.modified(cachedItem, item));
+                    this.fire(CacheEvent.Type.RELOADED, id, item);
+                });
+            }
+            catch (IllegalStateException e) {
+                this.evictAll();
+                throw e;
+            }
+            this.version = toVersion;
+            this.fire(CacheEvent.Type.REPOPULATED, null, null);
+            this.trim();
+            this.populated.signalAll();
+            return true;
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
@@ -258,7 +482,8 @@ public class Cache<T> {
      * @return An indication of whether or not the cache is fully populated.
      */
     public boolean isFullyPopulated() {
-        return this.fullyPopulated;
+        this.expunge();
+        return this.read(() -> this.fullyPopulated);
     }
 
     /**
@@ -280,10 +505,12 @@ public class Cache<T> {
      * @throws IllegalStateException If the cache is not fully populated.
      */
     public int size() {
-        if (! this.fullyPopulated) {
+        this.expunge();
+        Integer size = this.read(() -> this.fullyPopulated ? this.all.size() : null);
+        if (size == null) {
             throw new IllegalStateException("Attempt to get size of a partial cache");
         }
-        return this.all.size();
+        return size;
     }
 
     /**
@@ -303,255 +530,2106 @@ public class Cache<T> {
      * @return An indication of whether or not the cache contains the requested item.
      */
     public boolean contains(Serializable id) {
-        return this.items().containsKey(id);
+        this.expunge();
+        return this.read(() -> this.passesFilter(id) && this.items().containsKey(id));
     }
 
     /**
      * <p>
-     * Gets an item uniquely identified by the provided identifier from the cache, if such an item
-     * exists in the cache.
-     * </p>
-     * <p>
-     * In the case of a fully populated cache, this method returning an {@link Optional#empty()}
-     * indicates that no such item exists in the remote repository.
+     * Enables serving of stale items by the {@link Cache#all(long)} method while the cache is being
+     * repopulated, instead of blocking.
      * </p>
      * <p>
-     * In the case of a not fully populated cache, this method returning an {@link Optional#empty()}
-     * simply means that no such item has been cached, and there may or may not exist a matching
-     * item in the remote repository.
+     * When a fully populated cache reverts to a not fully populated state, other than through the
+     * {@link Cache#evictAll()} method, the items in the cache at that time are kept aside. Calls to
+     * the {@link Cache#all(long)} method then return those items immediately, for up to the specified
+     * time period, and trigger a repopulation of the cache in the background using the provided
+     * loader and executor. Once that time period has lapsed, calls to the {@link Cache#all(long)}
+     * method block and wait for the cache to become fully populated as usual.
      * </p>
      * <p>
-     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * At most one repopulation is in progress at a time. If the loader throws an exception, the next
+     * call to the {@link Cache#all(long)} method triggers another repopulation.
      * </p>
-     * @param id The unique identifier to use to locate the requested item.
-     * @return An {@link Optional} that either contains the item, if it exists in the cache, or is
-     *         empty if the item does not exist in the cache.
+     * @param maxStaleMillis The number of milliseconds after the cache reverts to a not fully
+     *                       populated state for which to keep returning stale items.
+     * @param loader The loader to use to load all items from the remote repository.
+     * @param executor The executor on which to run repopulations.
      */
-    public Optional<T> get(Serializable id) {
-        return this.itemById(id);
+    public void enableStaleWhileRevalidate(long maxStaleMillis, AllItemsLoader<T> loader, Executor executor) {
+        this.lockForWrite();
+        try {
+            this.staleWhileRevalidate = new StaleWhileRevalidate<>(maxStaleMillis, loader, executor);
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
      * <p>
-     * Gets an item uniquely identified by the provided identifier, if such an item exists.
-     * </p>
-     * <p>
-     * If the cache is not fully populated and the requested item is not currently in the cache,
-     * then this method blocks and waits, up to a length of time defined by the first argument,
-     * for the cache to get populated with the requested item by some other thread's call to the
-     * {@link Cache#setAll(Collection)} method or the {@link Cache#add(Object)} method. If the
-     * requested item does not exist in the remote resource, the cache will never get populated
-     * with it, and therefore this method will time out and return an {@link Optional#empty()}.
+     * Enables refreshing of items ahead of their eviction. When an item is retrieved from the cache and
+     * was added or last modified longer in the past than the specified time period, the cached item is
+     * returned immediately, and the item is reloaded from the remote repository in the background
+     * using the provided loader and executor.
      * </p>
      * <p>
-     * If the cache already contains the requeste item when this method is called, the method will
-     * return the item immediately. In this case, the timeout argument has no effect.
+     * A reloaded item replaces the cached item as a modification, as if it had been passed to the
+     * {@link Cache#update(Object)} method, which keeps frequently accessed items clear of age and
+     * modification based evictions. If the loader reports that the item no longer exists, the item is
+     * removed from the cache. Either is reported to listeners as {@link CacheEvent.Type#RELOADED}. If the
+     * item has been changed, removed or stored again while it was being reloaded, the reloaded item is
+     * discarded. If the loader throws an exception, the cached item is kept and reloaded again on a later
+     * retrieval.
      * </p>
      * <p>
-     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * At most one reload of any particular item is in progress at a time.
      * </p>
-     * @param id The unique identifier to use to locate the requested item.
-     * @param timeoutInMillis The number of milliseconds to wait for the cache to become populated
-     *                        with the requested item, if it is not already populated with it.
-     * @return An {@link Optional} that either contains the item, if it exists in the remote
-     *         repository, or is empty if the item does not exist in the remote repository or was
-     *         unable to be retrieved from the remote repository in the specified time.
+     * @param refreshAfterMillis Age in milliseconds since an item was added or last modified after
+     *                           which a retrieval triggers a reload.
+     * @param loader The loader to use to reload items from the remote repository.
+     * @param executor The executor on which to run reloads.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public synchronized Optional<T> get(Serializable id, long timeoutInMillis) {
-        if (this.fullyPopulated || this.contains(id)) {
-            return this.itemById(id);
-        }
+    public void enableRefreshAhead(long refreshAfterMillis, ItemLoader<T> loader, Executor executor) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
         try {
-            this.wait(timeoutInMillis);
+            this.refreshAhead = new RefreshAhead<>(refreshAfterMillis, loader, executor);
         }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        finally {
+            this.unlockForWrite();
         }
-        return this.itemById(id);
     }
 
     /**
      * <p>
-     * Adds an item to the cache.
-     * </p>
-     * <p>
-     * This method may be called to synchronize a new addition to the remote repository on a fully
-     * populated cache, or it may be called to add to a not fully populated cache an existing item
-     * that has been retrieved from the remote repository.
+     * Enables a probabilistic membership filter that is maintained alongside the cached items, and
+     * allows the {@link Cache#mightContain(Serializable)} method to rule out uncached items without
+     * looking them up. The filter is built from the items currently in the cache.
      * </p>
      * <p>
-     * This method will not change the state of the cache.
+     * The filter is sized to provide the requested false positive rate when the cache holds the
+     * expected number of items. Holding more items raises the false positive rate, but never causes a
+     * false negative.
      * </p>
-     * @param item The item to add to the cache.
+     * @param expectedItems The number of items the cache is expected to hold.
+     * @param falsePositiveRate The acceptable proportion of uncached items reported as possibly cached,
+     *                          between 0 and 1.
+     * @throws IllegalArgumentException If the expected items is not positive or the false positive rate
+     *                                  is not between 0 and 1.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public synchronized void add(T item) {
-        this.items().put(this.idExtractor.apply(item), new CachedItem<>(item, timestampGenerator.timestamp()));
-        this.notifyAll();
+    public void enableMembershipFilter(long expectedItems, double falsePositiveRate) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            CountingBloomFilter membershipFilter = new CountingBloomFilter(expectedItems, falsePositiveRate);
+            this.items().keySet().forEach(membershipFilter::add);
+            this.membershipFilter = membershipFilter;
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
      * <p>
-     * Updates a previously cached item.
-     * </p>
-     * <p>
-     * The previously cached item with a unique identifier matching the provided item will be replaced
-     * with the provided item, and the modified timestamp will be set.
+     * Limits the total weight of the items held by the cache, as calculated by the provided weigher.
+     * The weight of each item is calculated when it is stored, and the total weight is kept up to
+     * date as items are stored, deleted and evicted.
      * </p>
      * <p>
-     * In the case of a not fully populated cache, a failure to find the item to update in the cache
-     * is of no concern, and the item will simply be added to the cache, with its created timestamp
-     * matching its modified timestamp.
+     * Whenever storing an item takes the total weight over the maximum, the least recently used items,
+     * according to the most recent of their created, modified and accessed timestamps, are evicted
+     * until the total weight is within fifteen sixteenths of the maximum, rounded up, so that finding
+     * the least recently used items is only needed once in many stores. As with any eviction, the cache
+     * will then be left in a not fully populated state. Evictions are reported to listeners after the
+     * store that caused them, so an item heavier than the maximum weight is reported as stored and then
+     * as evicted.
      * </p>
      * <p>
-     * In the case of a fully populated cache, a failure to find the item to update indicates that the
-     * cache is not properly synchronized with the remote repository. This likely indicates a problem
-     * with the synchronization of the cache in the calling code, and should probably be addressed.
-     * The item will be added to the cache as a new item, the cache state will revert to not fully
-     * populated, and an {@link IllegalStateException} will be thrown.
+     * Weights may be in any unit. The {@link SizeEstimatingWeigher} can be used to express the maximum
+     * weight as an approximate number of bytes of heap.
      * </p>
-     * @param item The item to update.
-     * @throws IllegalStateException If the cache is fully populated but the item to update is not
-     *                               found in the cache.
+     * @param maxWeight The maximum total weight of the items held by the cache.
+     * @param weigher The weigher to use to calculate the weight of each item.
+     * @throws IllegalArgumentException If the maximum weight is negative, or the weigher calculates a
+     *                                  negative weight for a cached item.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public void update(T item) {
-        CachedItem<T> oldItem = this.items().get(this.idExtractor.apply(item));
-        if (oldItem == null) {
-            this.add(item);
-            if (this.fullyPopulated) {
-                this.downgradeToNotFullyPopulated();
-                throw new IllegalStateException("Attempt to update a missing item in a fully populated cache");
+    public void enableWeightLimit(long maxWeight, Weigher<? super T> weigher) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            if (maxWeight < 0) {
+                throw new IllegalArgumentException("Attempt to limit a cache to a negative weight");
             }
+            this.weights.clear();
+            this.weight = 0;
+            this.weightLimit = new WeightLimit<>(maxWeight, weigher);
+            try {
+                this.items().forEach(this::weigh);
+            }
+            catch (IllegalArgumentException e) {
+                this.weightLimit = null;
+                this.weights.clear();
+                this.weight = 0;
+                throw e;
+            }
+            this.trim();
         }
-        else {
-            this.items().replace(this.idExtractor.apply(item), oldItem.modified(item, timestampGenerator.timestamp()));
+        finally {
+            this.unlockForWrite();
         }
     }
 
     /**
      * <p>
-     * Removes a previously cached item from the cache.
-     * </p>
-     * <p>
-     * The previously cached item with a unique identifier matching the provided item will be removed.
+     * Holds cached items through soft references, allowing the garbage collector to reclaim them when
+     * memory runs low rather than failing with an {@link OutOfMemoryError}. Items currently in the
+     * cache are converted immediately.
      * </p>
      * <p>
-     * In the case of a not fully populated cache, a failure to find the item to delete in the cache
-     * is of no concern, and the item will simply do nothing.
+     * Reclaimed items are removed from the cache during subsequent operations, as though they had been
+     * evicted. A fully populated cache will revert to a not fully populated state once an item has been
+     * reclaimed, so this mode is best suited to caches that are used opportunistically.
      * </p>
      * <p>
-     * In the case of a fully populated cache, a failure to find the item to delete indicates that the
-     * cache is not properly synchronized with the remote repository. This likely indicates a problem
-     * with the synchronization of the cache in the calling code, and should probably be addressed.
-     * The cache state will revert to not fully populated, and an {@link IllegalStateException} will be
-     * thrown.
+     * Only the items are softly referenced. Their unique identifiers are always strongly referenced,
+     * since items are looked up by the equality of their identifiers rather than by identity.
      * </p>
-     * @param id The unique identifier of the item to delete.
-     * @throws IllegalStateException If the cache is fully populated but the item to update is not
-     *                               found in the cache.
+     * @throws IllegalStateException If soft or weak values have already been enabled, or any index has
+     *                               been registered, since index keys could no longer be derived from
+     *                               reclaimed items, or the cache was built without optional
+     *                               features by a {@link CacheBuilder}.
      */
-    public void delete(Serializable id) {
-        if (this.fullyPopulated && ! this.all.containsKey(id)) {
-            this.downgradeToNotFullyPopulated();
-            throw new IllegalStateException("Attempt to remove a missing item from a fully populated cache");
+    public void enableSoftValues() {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.enableItemReferences(true);
+        }
+        finally {
+            this.unlockForWrite();
         }
-        this.items().remove(id);
     }
 
     /**
      * <p>
-     * Evicts from the cache any items that have either not been accessed at all since being stored
-     * in the cache, or were last accessed longer in the past than the specified time period in
-     * milliseconds.
-     * </p>
-     * <p>
-     * The cache will be left in a not fully populated state.
+     * Holds cached items through weak references, allowing the garbage collector to reclaim them as soon
+     * as they are no longer referenced outside of the cache. Otherwise identical to the
+     * {@link Cache#enableSoftValues()} method.
      * </p>
-     * @param ageInMillis Age in milliseconds of oldest unaccessed timestamp to keep.
+     * @throws IllegalStateException If soft or weak values have already been enabled, or any index has
+     *                               been registered, or the cache was built without optional
+     *                               features by a {@link CacheBuilder}.
      */
-    public void evictUnaccessed(long ageInMillis) {
-        this.evict(item -> Optional.ofNullable(item.getAccessed()).orElse(0L) < timestampGenerator.timestamp() - ageInMillis);
+    public void enableWeakValues() {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.enableItemReferences(false);
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
      * <p>
-     * Evicts from the cache any items that have either not been modified at all since being stored
-     * in the cache, or were last modified longer in the past than the specified time period in
-     * milliseconds.
+     * Passes every item stored in the cache from now on through the provided interner, so that equal
+     * items, or equal parts of items, share a single instance rather than each being held separately.
+     * Items are interned as they are added, updated or stored in full, and when they are reloaded from
+     * the remote repository.
      * </p>
      * <p>
-     * The cache will be left in a not fully populated state.
+     * The {@link WeakInterner} canonicalizes whole items. To share only parts of items, such as a
+     * configuration object that many items have in common, provide an interner that rebuilds each item
+     * around interned parts, for example using a {@link WeakInterner} for each part.
      * </p>
-     * @param ageInMillis Age in milliseconds of oldest modified timestamp to keep.
+     * @param interner The interner through which to pass stored items.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public void evictUnmodified(long ageInMillis) {
-        this.evict(item -> Optional.ofNullable(item.getModified()).orElse(0L) < timestampGenerator.timestamp() - ageInMillis);
+    public void enableInterning(Interner<T> interner) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.interner = interner;
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
      * <p>
-     * Evicts from the cache any items that are older than the specified age in milliseconds.
+     * Records only a random sample of accesses to cached items, rather than every access, so that most
+     * retrievals of an item do not write to the cache. On average, one access in every sample rate
+     * accesses is recorded.
      * </p>
      * <p>
-     * The cache will be left in a not fully populated state.
+     * Recorded access times are used by the {@link Cache#evictUnaccessed(long)} and
+     * {@link Cache#compressUnaccessed(long, ValueCodec)} methods, and to choose which items to remove
+     * when a weight limit is exceeded. Once sampling is enabled, an item that has been accessed only a
+     * few times may be treated as never having been accessed, so the sample rate should be low enough
+     * that frequently accessed items are reliably recorded within the ages passed to those methods.
      * </p>
-     * @param ageInMillis Age in milliseconds of oldest item to keep.
+     * @param sampleRate The number of accesses for each access recorded.
+     * @throws IllegalArgumentException If the sample rate is not positive.
+     * @throws IllegalStateException If sampled or buffered access recording has already been enabled,
+     *                               or the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public void evict(long ageInMillis) {
-        this.evict(item -> item.getCreated() < timestampGenerator.timestamp() - ageInMillis);
+    public void enableSampledAccessRecording(int sampleRate) {
+        this.verifyAcceptsFeatures();
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Attempt to sample accesses at a rate below one");
+        }
+        this.lockForWrite();
+        try {
+            this.verifyAccessRecordingNotEnabled();
+            this.accessSampleRate = sampleRate;
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
     /**
      * <p>
-     * Evicts all items from the cache.
+     * Records accesses to cached items in buffers, rather than directly in the cache, so that retrieving
+     * an item does not write to the cache. The buffers are striped by thread, to keep threads retrieving
+     * items from contending with each other, and are applied to the cache in batches whenever a buffer
+     * fills, and before the recorded access times are used.
      * </p>
      * <p>
-     * The cache will be left in a not fully populated state.
+     * Recorded access times are used by the {@link Cache#evictUnaccessed(long)} and
+     * {@link Cache#compressUnaccessed(long, ValueCodec)} methods, and to choose which items to remove
+     * when a weight limit is exceeded. Accesses are dropped, rather than waiting, if a buffer is full
+     * while another thread is applying the buffers. An item that is accessed frequently is still
+     * recorded as accessed recently, but an occasional access may be missed.
+     * </p>
+     * @param bufferSize The number of accesses each buffer can hold.
+     * @throws IllegalArgumentException If the buffer size is not positive.
+     * @throws IllegalStateException If sampled or buffered access recording has already been enabled,
+     *                               or the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
      */
-    public void evictAll() {
-        this.all.clear();
-        this.partial.clear();
-        this.fullyPopulated = false;
+    public void enableBufferedAccessRecording(int bufferSize) {
+        this.enableBufferedAccessRecording(bufferSize, Runtime.getRuntime().availableProcessors());
     }
 
-    private Map<Serializable, CachedItem<T>> items() {
-        return this.fullyPopulated ? this.all : this.partial;
+    void enableBufferedAccessRecording(int bufferSize, int stripes) {
+        this.verifyAcceptsFeatures();
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Attempt to buffer accesses in an empty buffer");
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Attempt to buffer accesses in fewer than one stripe");
+        }
+        this.lockForWrite();
+        try {
+            this.verifyAccessRecordingNotEnabled();
+            this.accessBuffer = new AccessBuffer(stripes, bufferSize);
+        }
+        finally {
+            this.unlockForWrite();
+        }
     }
 
-    private Collection<T> allItems() {
-        return this.all.values().stream().map(CachedItem::getItem).collect(Collectors.toList());
+    /**
+     * <p>
+     * Returns the total weight of the items held by the cache, as calculated by the weigher provided
+     * to the {@link Cache#enableWeightLimit(long, Weigher)} method. If no weight limit has been
+     * enabled, the total weight is zero.
+     * </p>
+     * @return The total weight of the cached items.
+     */
+    public long getWeight() {
+        return this.read(() -> this.weight);
     }
 
-    private Optional<T> itemById(Serializable id) {
-        CachedItem<T> item = this.items().get(id);
-        if (item == null) {
-            return Optional.empty();
-        }
-        this.items().put(id, item.accessed(timestampGenerator.timestamp()));
-        return Optional.of(item.getItem());
+    /**
+     * <p>
+     * Indicates whether or not the cache might contain an item identified by the provided identifier.
+     * </p>
+     * <p>
+     * A negative response means that the item is definitely not cached, and allows any further lookups
+     * of the item in the cache to be skipped. A positive response means that the item is probably
+     * cached, subject to the false positive rate of the membership filter enabled by the
+     * {@link Cache#enableMembershipFilter(long, double)} method. If no membership filter has been
+     * enabled, the response is always positive.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An indication of whether or not the cache might contain the requested item.
+     */
+    public boolean mightContain(Serializable id) {
+        return this.read(() -> this.passesFilter(id));
     }
 
-    private void evict(Predicate<CachedItem<T>> selector) {
-        Map<Serializable, CachedItem<T>> items = this.items();
-        int preEvictionSize = items.size();
-        items.values()
-                .stream()
-                .filter(selector)
-                .map(CachedItem::getItem)
-                .map(this.idExtractor)
-                .collect(Collectors.toList())
-                .forEach(items::remove);
-        if (this.fullyPopulated) {
-            if (items.size() == preEvictionSize) {
-                return;
-            }
-            this.downgradeToNotFullyPopulated();
+    /**
+     * <p>
+     * Gets an item uniquely identified by the provided identifier from the cache, if such an item
+     * exists in the cache.
+     * </p>
+     * <p>
+     * In the case of a fully populated cache, this method returning an {@link Optional#empty()}
+     * indicates that no such item exists in the remote repository.
+     * </p>
+     * <p>
+     * In the case of a not fully populated cache, this method returning an {@link Optional#empty()}
+     * simply means that no such item has been cached, and there may or may not exist a matching
+     * item in the remote repository.
+     * </p>
+     * <p>
+     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An {@link Optional} that either contains the item, if it exists in the cache, or is
+     *         empty if the item does not exist in the cache.
+     */
+    public Optional<T> get(Serializable id) {
+        if (this.hotKeys != null) {
+            this.hotKeys.record(id);
         }
+        return this.stats == null ? this.itemById(id) : this.recorded(() -> this.itemById(id));
     }
 
-    private void downgradeToNotFullyPopulated() {
-        this.partial.clear();
-        this.partial.putAll(this.all);
-        this.all.clear();
-        this.fullyPopulated = false;
+    /**
+     * <p>
+     * Gets an item uniquely identified by the provided identifier, if such an item exists.
+     * </p>
+     * <p>
+     * If the cache is not fully populated and the requested item is not currently in the cache,
+     * then this method blocks and waits, up to a length of time defined by the first argument,
+     * for the cache to get populated with the requested item by some other thread's call to the
+     * {@link Cache#setAll(Collection)} method or the {@link Cache#add(Object)} method. If the
+     * requested item does not exist in the remote resource, the cache will never get populated
+     * with it, and therefore this method will time out and return an {@link Optional#empty()}.
+     * </p>
+     * <p>
+     * If the cache already contains the requeste item when this method is called, the method will
+     * return the item immediately. In this case, the timeout argument has no effect.
+     * </p>
+     * <p>
+     * If the requested item is known to be missing from the remote repository, as recorded by the
+     * {@link Cache#markMissing(Serializable, long)} method, the method will return an
+     * {@link Optional#empty()} immediately without waiting.
+     * </p>
+     * <p>
+     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @param timeoutInMillis The number of milliseconds to wait for the cache to become populated
+     *                        with the requested item, if it is not already populated with it.
+     * @return An {@link Optional} that either contains the item, if it exists in the remote
+     *         repository, or is empty if the item does not exist in the remote repository or was
+     *         unable to be retrieved from the remote repository in the specified time.
+     */
+    public Optional<T> get(Serializable id, long timeoutInMillis) {
+        if (this.hotKeys != null) {
+            this.hotKeys.record(id);
+        }
+        return this.stats == null ? this.itemById(id, timeoutInMillis) : this.recorded(() -> this.itemById(id, timeoutInMillis));
+    }
+
+    /**
+     * <p>
+     * Starts recording statistics about the use of the cache, which are returned by the
+     * {@link Cache#getStats()} method: hits and misses when retrieving items, the time spent
+     * retrieving items, evictions, and waits for the cache to be populated, along with those that
+     * timed out.
+     * </p>
+     * <p>
+     * Statistics are recorded in counters that threads can update without contending with each other,
+     * but recording them still adds a little work to every retrieval, so they are not recorded unless
+     * enabled. Enabling them again has no effect.
+     * </p>
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public void enableStats() {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            if (this.stats == null) {
+                this.stats = new StatsCounter();
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns a snapshot of the state of the cache and of the statistics recorded since they were
+     * enabled by the {@link Cache#enableStats()} method. The numbers of items held and the state of the
+     * cache are always included, and the statistics are zero if not enabled.
+     * </p>
+     * <p>
+     * To publish the statistics to a monitoring system, see {@link CacheMetrics}.
+     * </p>
+     * @return A snapshot of the statistics of the cache.
+     */
+    public CacheStats getStats() {
+        StatsCounter stats = this.stats == null ? new StatsCounter() : this.stats;
+        return this.read(() -> stats.snapshot(this.fullyPopulated, this.all.size(), this.partial.size()));
+    }
+
+    /**
+     * <p>
+     * Starts tracking which identifiers are requested most often through the
+     * {@link Cache#get(Serializable)} and {@link Cache#get(Serializable, long)} methods, whether or not
+     * the requested items are found, so that they can be reported by the {@link Cache#topKeys(int)}
+     * method.
+     * </p>
+     * <p>
+     * Requests are counted approximately, in a fixed amount of memory that depends on the number of
+     * identifiers to track rather than on the number of items or identifiers requested. Counts are
+     * halved periodically, so that the identifiers reported are those that have been requested often
+     * recently.
+     * </p>
+     * @param capacity The number of most frequently requested identifiers to track.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     * @throws IllegalStateException If hot key tracking has already been enabled, or the cache was
+     *                               built without optional features by a {@link CacheBuilder}.
+     */
+    public void enableHotKeyTracking(int capacity) {
+        this.verifyAcceptsFeatures();
+        HotKeyTracker hotKeys = new HotKeyTracker(capacity);
+        this.lockForWrite();
+        try {
+            if (this.hotKeys != null) {
+                throw new IllegalStateException("Attempt to enable hot key tracking more than once");
+            }
+            this.hotKeys = hotKeys;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the identifiers that have been requested most often recently, from most to least often,
+     * as tracked once enabled by the {@link Cache#enableHotKeyTracking(int)} method.
+     * </p>
+     * <p>
+     * The identifiers reported may or may not be cached. An identifier that is requested often but not
+     * cached may be worth loading ahead of time, and one that is cached may be worth protecting from
+     * eviction. No more identifiers are reported than the capacity to track.
+     * </p>
+     * @param count The maximum number of identifiers to return.
+     * @return The most frequently requested identifiers, with their estimated request counts.
+     * @throws IllegalStateException If hot key tracking has not been enabled.
+     */
+    public List<HotKey> topKeys(int count) {
+        HotKeyTracker hotKeys = this.hotKeys;
+        if (hotKeys == null) {
+            throw new IllegalStateException("Attempt to get top keys without hot key tracking");
+        }
+        return hotKeys.top(count);
+    }
+
+    private Optional<T> itemById(Serializable id, long timeoutInMillis) {
+        if (this.read(() -> this.fullyPopulated || this.items().containsKey(id))) {
+            return this.itemById(id);
+        }
+        this.lockForWrite();
+        try {
+            if (! this.fullyPopulated && ! this.contains(id)) {
+                if (this.isKnownMissing(id)) {
+                    return Optional.empty();
+                }
+                this.await(() -> this.fullyPopulated || this.items().containsKey(id), timeoutInMillis);
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+        return this.itemById(id);
+    }
+
+    /**
+     * <p>
+     * Records that an item does not exist in the remote repository, so that subsequent lookups of the
+     * item can be answered without querying the remote repository again.
+     * </p>
+     * <p>
+     * This method is intended to be called on a not fully populated cache after a lookup in the remote
+     * repository has confirmed that the item does not exist. The record expires after the specified
+     * time period, and is cleared earlier if an item with the same identifier is stored in the cache,
+     * or if the cache is repopulated or evicted in full.
+     * </p>
+     * <p>
+     * This method will not change the state of the cache.
+     * </p>
+     * @param id The unique identifier of the missing item.
+     * @param ttlInMillis The number of milliseconds for which to consider the item missing.
+     */
+    public void markMissing(Serializable id, long ttlInMillis) {
+        this.lockForWrite();
+        try {
+            long now = this.timestampGenerator.timestamp();
+            if (this.missing.size() >= this.missingPurgeThreshold) {
+                this.missing.values().removeIf(expiry -> expiry <= now);
+                this.missingPurgeThreshold = Math.max(MISSING_PURGE_THRESHOLD, this.missing.size() * 2);
+            }
+            this.missing.put(id, now + ttlInMillis);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Indicates whether or not an item is known not to exist in the remote repository.
+     * </p>
+     * <p>
+     * When the cache is fully populated, any item that is not in the cache is known not to exist.
+     * When the cache is not fully populated, an item is known not to exist only if it has been
+     * recorded as missing using the {@link Cache#markMissing(Serializable, long)} method, and that
+     * record has not yet expired or been cleared.
+     * </p>
+     * <p>
+     * A negative response does not indicate that the item exists, just that a call to the remote
+     * repository will be necessary to determine the actual state of the item, unless the item is
+     * cached.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An indication of whether or not the item is known not to exist.
+     */
+    public boolean isKnownMissing(Serializable id) {
+        Boolean knownMissing = this.read(() -> {
+            if (this.fullyPopulated) {
+                return ! this.all.containsKey(id);
+            }
+            Long expiry = this.missing.get(id);
+            return expiry == null ? Boolean.FALSE : expiry > this.timestampGenerator.timestamp() ? Boolean.TRUE : null;
+        });
+        if (knownMissing != null) {
+            return knownMissing;
+        }
+        this.lockForWrite();
+        try {
+            if (this.fullyPopulated) {
+                return ! this.all.containsKey(id);
+            }
+            Long expiry = this.missing.get(id);
+            if (expiry == null) {
+                return false;
+            }
+            if (expiry <= this.timestampGenerator.timestamp()) {
+                this.missing.remove(id);
+                return false;
+            }
+            return true;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Adds an item to the cache.
+     * </p>
+     * <p>
+     * This method may be called to synchronize a new addition to the remote repository on a fully
+     * populated cache, or it may be called to add to a not fully populated cache an existing item
+     * that has been retrieved from the remote repository.
+     * </p>
+     * <p>
+     * This method will not change the state of the cache.
+     * </p>
+     * <p>
+     * If the item has the same key in a unique index as a different cached item, the item is not
+     * added and an {@link IllegalStateException} is thrown.
+     * </p>
+     * @param item The item to add to the cache.
+     * @throws IllegalStateException If the item has the same key in a unique index as a different
+     *                               cached item.
+     */
+    public void add(T item) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            Serializable id = this.idExtractor.apply(item);
+            this.store(id, this.created(item));
+            this.fire(CacheEvent.Type.ADDED, id, item);
+            this.trim();
+            this.populated.signalAll();
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Updates a previously cached item.
+     * </p>
+     * <p>
+     * The previously cached item with a unique identifier matching the provided item will be replaced
+     * with the provided item, and the modified timestamp will be set.
+     * </p>
+     * <p>
+     * In the case of a not fully populated cache, a failure to find the item to update in the cache
+     * is of no concern, and the item will simply be added to the cache, with its created timestamp
+     * matching its modified timestamp.
+     * </p>
+     * <p>
+     * In the case of a fully populated cache, a failure to find the item to update indicates that the
+     * cache is not properly synchronized with the remote repository. This likely indicates a problem
+     * with the synchronization of the cache in the calling code, and should probably be addressed.
+     * The item will be added to the cache as a new item, the cache state will revert to not fully
+     * populated, and an {@link IllegalStateException} will be thrown.
+     * </p>
+     * @param item The item to update.
+     * @throws IllegalStateException If the cache is fully populated but the item to update is not
+     *                               found in the cache.
+     */
+    public void update(T item) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            Serializable id = this.idExtractor.apply(item);
+            CachedItem<T> oldItem = this.items().get(id);
+            if (oldItem == null) {
+                boolean wasFullyPopulated = this.fullyPopulated;
+                this.add(item);
+                if (wasFullyPopulated) {
+                    if (this.fullyPopulated) {
+                        this.downgradeToNotFullyPopulated();
+                    }
+                    throw new IllegalStateException("Attempt to update a missing item in a fully populated cache");
+                }
+            }
+            else {
+                this.store(id, this.modified(oldItem, item));
+                this.fire(CacheEvent.Type.UPDATED, id, item);
+                this.trim();
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the version of the cached item identified by the provided identifier, if such an item
+     * exists in the cache.
+     * </p>
+     * <p>
+     * An item is given a new version when it is stored in the cache, whether it is added, modified,
+     * reloaded or stored as part of a full population. Versions are taken from a single counter for the
+     * whole cache, so an item that is deleted and added again, or stored again when the cache is
+     * repopulated, never returns to a version it had before. Pass the version to the
+     * {@link Cache#replace(Object, long)} method to replace the item only if no other change has been
+     * made to it in the meantime.
+     * </p>
+     * @param id The unique identifier of the item.
+     * @return The version of the cached item, or an empty result if the item is not cached.
+     */
+    public OptionalLong getItemVersion(Serializable id) {
+        CachedItem<T> item = this.read(() -> this.items().get(id));
+        return item == null ? OptionalLong.empty() : OptionalLong.of(item.getVersion());
+    }
+
+    /**
+     * <p>
+     * Adds an item to the cache, unless an item with the same unique identifier is already cached.
+     * </p>
+     * <p>
+     * The check and the addition are made together, so that of several threads adding the same item
+     * at once, only one adds it, and the rest receive the item that it added. As with the
+     * {@link Cache#add(Object)} method, the state of the cache is not changed.
+     * </p>
+     * @param item The item to add to the cache.
+     * @return An {@link Optional} that contains the item already cached, if any, or is empty if the
+     *         provided item was added.
+     * @throws IllegalStateException If the item has the same key in a unique index as a different
+     *                               cached item.
+     */
+    public Optional<T> putIfAbsent(T item) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            Serializable id = this.idExtractor.apply(item);
+            CachedItem<T> cachedItem = this.items().get(id);
+            if (cachedItem != null) {
+                T value = cachedItem.getItem();
+                if (value != null) {
+                    return Optional.of(value);
+                }
+                this.collected(id);
+            }
+            this.store(id, this.created(item));
+            this.fire(CacheEvent.Type.ADDED, id, item);
+            this.trim();
+            this.populated.signalAll();
+            return Optional.empty();
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Replaces a cached item, but only if the cached item is still at the expected version, as
+     * returned by the {@link Cache#getItemVersion(Serializable)} method.
+     * </p>
+     * <p>
+     * If the item has been modified, removed or stored again since its version was read, nothing is
+     * changed and false is returned. The caller may then read the item again, and retry.
+     * </p>
+     * @param item The item with which to replace the cached item.
+     * @param expectedVersion The version at which the cached item is expected to be.
+     * @return An indication of whether or not the cached item was replaced.
+     * @throws IllegalStateException If the item has the same key in a unique index as a different
+     *                               cached item.
+     */
+    public boolean replace(T item, long expectedVersion) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            Serializable id = this.idExtractor.apply(item);
+            CachedItem<T> oldItem = this.items().get(id);
+            if (oldItem == null || oldItem.getVersion() != expectedVersion) {
+                return false;
+            }
+            this.store(id, this.modified(oldItem, item));
+            this.fire(CacheEvent.Type.UPDATED, id, item);
+            this.trim();
+            return true;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Updates a cached item, but only if the provided item is newer than the cached item, as judged by
+     * comparing a version extracted from each, such as a revision number or a last modified timestamp
+     * maintained by the remote repository.
+     * </p>
+     * <p>
+     * This allows items loaded from the remote repository by several threads at once to be stored in
+     * any order, without an older item overwriting a newer one. If the item is not cached, it is added
+     * to a not fully populated cache. A fully populated cache is left unchanged in that case, since the
+     * item has presumably been deleted since it was loaded.
+     * </p>
+     * @param item The item to update.
+     * @param versionExtractor The expression to use to extract the version of an item.
+     * @param <V> The type of the version.
+     * @return An indication of whether or not the item was stored.
+     * @throws IllegalStateException If the item has the same key in a unique index as a different
+     *                               cached item.
+     */
+    public <V extends Comparable<? super V>> boolean updateIfNewer(T item, Function<T, V> versionExtractor) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            Serializable id = this.idExtractor.apply(item);
+            CachedItem<T> oldItem = this.items().get(id);
+            T oldValue = oldItem == null ? null : oldItem.getItem();
+            if (oldValue == null) {
+                if (this.fullyPopulated) {
+                    return false;
+                }
+                this.add(item);
+                return true;
+            }
+            if (versionExtractor.apply(item).compareTo(versionExtractor.apply(oldValue)) <= 0) {
+                return false;
+            }
+            this.store(id, this.modified(oldItem, item));
+            this.fire(CacheEvent.Type.UPDATED, id, item);
+            this.trim();
+            return true;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Computes a new item from the item cached with the provided identifier, if any, and stores it in
+     * place of the cached item.
+     * </p>
+     * <p>
+     * The provided function receives the cached item, or an empty {@link Optional} if no such item is
+     * cached, and returns the item to store, or an empty {@link Optional} to remove the item from the
+     * cache. No other change can be made to the cache while the function runs, so the function should
+     * be quick, and must not change the cache itself. As with the {@link Cache#add(Object)},
+     * {@link Cache#update(Object)} and {@link Cache#delete(Serializable)} methods, the state of the
+     * cache is not changed.
+     * </p>
+     * @param id The unique identifier of the item.
+     * @param remapping The function to use to compute the new item from the cached item.
+     * @return The computed item, or an empty {@link Optional} if the item was removed.
+     * @throws IllegalArgumentException If the computed item has a different unique identifier.
+     * @throws IllegalStateException If the computed item has the same key in a unique index as a
+     *                               different cached item.
+     */
+    public Optional<T> compute(Serializable id, Function<Optional<T>, Optional<T>> remapping) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            CachedItem<T> oldItem = this.items().get(id);
+            Optional<T> item = remapping.apply(oldItem == null ? Optional.empty() : Optional.ofNullable(oldItem.getItem()));
+            if (! item.isPresent()) {
+                if (oldItem != null) {
+                    this.remove(id, RemovalCause.EXPLICIT);
+                    this.fire(CacheEvent.Type.DELETED, id, null);
+                }
+                return item;
+            }
+            if (! id.equals(this.idExtractor.apply(item.get()))) {
+                throw new IllegalArgumentException("Computed item does not have identifier " + id);
+            }
+            if (oldItem == null) {
+                this.store(id, this.created(item.get()));
+                this.fire(CacheEvent.Type.ADDED, id, item.get());
+                this.trim();
+                this.populated.signalAll();
+            }
+            else {
+                this.store(id, this.modified(oldItem, item.get()));
+                this.fire(CacheEvent.Type.UPDATED, id, item.get());
+                this.trim();
+            }
+            return item;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Removes a previously cached item from the cache.
+     * </p>
+     * <p>
+     * The previously cached item with a unique identifier matching the provided item will be removed.
+     * </p>
+     * <p>
+     * In the case of a not fully populated cache, a failure to find the item to delete in the cache
+     * is of no concern, and the item will simply do nothing.
+     * </p>
+     * <p>
+     * In the case of a fully populated cache, a failure to find the item to delete indicates that the
+     * cache is not properly synchronized with the remote repository. This likely indicates a problem
+     * with the synchronization of the cache in the calling code, and should probably be addressed.
+     * The cache state will revert to not fully populated, and an {@link IllegalStateException} will be
+     * thrown.
+     * </p>
+     * @param id The unique identifier of the item to delete.
+     * @throws IllegalStateException If the cache is fully populated but the item to update is not
+     *                               found in the cache.
+     */
+    public void delete(Serializable id) {
+        this.lockForWrite();
+        try {
+            this.expunge();
+            if (this.fullyPopulated && ! this.all.containsKey(id)) {
+                this.downgradeToNotFullyPopulated();
+                throw new IllegalStateException("Attempt to remove a missing item from a fully populated cache");
+            }
+            this.remove(id, RemovalCause.EXPLICIT);
+            this.fire(CacheEvent.Type.DELETED, id, null);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Evicts from the cache any items that have either not been accessed at all since being stored
+     * in the cache, or were last accessed longer in the past than the specified time period in
+     * milliseconds.
+     * </p>
+     * <p>
+     * The cache will be left in a not fully populated state.
+     * </p>
+     * @param ageInMillis Age in milliseconds of oldest unaccessed timestamp to keep.
+     */
+    public void evictUnaccessed(long ageInMillis) {
+        this.drainAccesses();
+        this.evict(item -> Optional.ofNullable(item.getAccessed()).orElse(0L) < timestampGenerator.timestamp() - ageInMillis, RemovalCause.EXPIRED_ACCESSED);
+    }
+
+    /**
+     * <p>
+     * Compresses any items that have either not been accessed at all since being stored in the cache,
+     * or were last accessed longer in the past than the specified time period in milliseconds, using
+     * the provided codec.
+     * </p>
+     * <p>
+     * Compressed items remain in the cache, so the state of the cache is not changed. A compressed
+     * item is decoded whenever it is retrieved, and is held uncompressed again once it has been
+     * retrieved by the {@link Cache#get(Serializable)} method, or once it has been updated. Items held
+     * through soft or weak references are not compressed. Any weight limit continues to apply the
+     * weight of the uncompressed item.
+     * </p>
+     * @param ageInMillis Age in milliseconds of oldest unaccessed timestamp to keep uncompressed.
+     * @param codec The codec to use to compress items.
+     */
+    public void compressUnaccessed(long ageInMillis, ValueCodec<T> codec) {
+        this.lockForWrite();
+        try {
+            this.drainAccesses();
+            long cutoff = timestampGenerator.timestamp() - ageInMillis;
+            this.items().replaceAll((id, item) -> item.isHeld() || Optional.ofNullable(item.getAccessed()).orElse(0L) >= cutoff
+                    ? item
+                    : item.held(new CompressedItem<>(item.getItem(), codec)));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Evicts from the cache any items that have either not been modified at all since being stored
+     * in the cache, or were last modified longer in the past than the specified time period in
+     * milliseconds.
+     * </p>
+     * <p>
+     * The cache will be left in a not fully populated state.
+     * </p>
+     * @param ageInMillis Age in milliseconds of oldest modified timestamp to keep.
+     */
+    public void evictUnmodified(long ageInMillis) {
+        this.evict(item -> Optional.ofNullable(item.getModified()).orElse(0L) < timestampGenerator.timestamp() - ageInMillis, RemovalCause.EXPIRED_MODIFIED);
+    }
+
+    /**
+     * <p>
+     * Evicts from the cache any items that are older than the specified age in milliseconds.
+     * </p>
+     * <p>
+     * The cache will be left in a not fully populated state.
+     * </p>
+     * @param ageInMillis Age in milliseconds of oldest item to keep.
+     */
+    public void evict(long ageInMillis) {
+        this.evict(item -> item.getCreated() < timestampGenerator.timestamp() - ageInMillis, RemovalCause.EXPIRED_CREATED);
+    }
+
+    /**
+     * <p>
+     * Evicts all items from the cache.
+     * </p>
+     * <p>
+     * The cache will be left in a not fully populated state.
+     */
+    public void evictAll() {
+        this.lockForWrite();
+        try {
+            this.clear();
+            this.version = null;
+            this.staleItems = null;
+            this.fullyPopulated = false;
+            this.fire(CacheEvent.Type.EVICTED, null, null);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Registers a secondary index, allowing items to be looked up by a key other than their unique
+     * identifier using the {@link Cache#findBy(String, Object)} method. Any number of items may share
+     * the same key.
+     * </p>
+     * <p>
+     * The index is built from the items currently in the cache, and is kept up to date as items are
+     * added, updated, deleted and evicted.
+     * </p>
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @throws IllegalArgumentException If an index with the same name has already been registered.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public void addIndex(String name, Function<T, ?> keyExtractor) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.registerIndex(name, new ItemIndex<>(keyExtractor, false));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Registers a unique secondary index, allowing a single item to be looked up by a key other than
+     * its unique identifier using the {@link Cache#findOneBy(String, Object)} method.
+     * </p>
+     * <p>
+     * The index is built from the items currently in the cache, and is kept up to date as items are
+     * added, updated, deleted and evicted. Once the index is registered, any attempt to store an item
+     * with the same key as a different cached item results in an {@link IllegalStateException}.
+     * </p>
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @throws IllegalArgumentException If an index with the same name has already been registered.
+     * @throws IllegalStateException If two of the currently cached items have the same key, or the
+     *                               cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public void addUniqueIndex(String name, Function<T, ?> keyExtractor) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.registerIndex(name, new ItemIndex<>(keyExtractor, true));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns all items in the remote repository that have the provided key in the named index.
+     * </p>
+     * <p>
+     * As with {@link Cache#all()}, this method is only to be used when the cache is in fully
+     * populated state, otherwise the result would have no logical relation to the remote repository.
+     * If this method is called when the cache is not fully populated, an
+     * {@link IllegalStateException} will be thrown.
+     * </p>
+     * @param indexName The name of the index to search.
+     * @param key The key to search for.
+     * @return A collection of the items that have the provided key, which is empty if there are none.
+     * @throws IllegalArgumentException If no index with the provided name has been registered.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public Collection<T> findBy(String indexName, Object key) {
+        return this.readLocked(() -> {
+            ItemIndex<T> index = this.index(indexName);
+            if (! this.fullyPopulated) {
+                throw new IllegalStateException("Attempt to find by index in a partial cache");
+            }
+            return index.ids(key).stream().map(id -> this.all.get(id).getItem()).collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * <p>
+     * Gets the item that has the provided key in the named unique index, if such an item exists in
+     * the cache.
+     * </p>
+     * <p>
+     * As with {@link Cache#get(Serializable)}, an {@link Optional#empty()} indicates that no such item
+     * exists in the remote repository when the cache is fully populated, but only that no such item
+     * has been cached when the cache is not fully populated.
+     * </p>
+     * <p>
+     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * </p>
+     * @param indexName The name of the unique index to search.
+     * @param key The key to search for.
+     * @return An {@link Optional} that either contains the item, if it exists in the cache, or is
+     *         empty if the item does not exist in the cache.
+     * @throws IllegalArgumentException If no unique index with the provided name has been registered.
+     */
+    public Optional<T> findOneBy(String indexName, Object key) {
+        Optional<Serializable> id = this.readLocked(() -> {
+            ItemIndex<T> index = this.index(indexName);
+            if (! index.isUnique()) {
+                throw new IllegalArgumentException("Index " + indexName + " is not unique");
+            }
+            return index.ids(key).stream().findFirst();
+        });
+        return id.flatMap(this::itemById);
+    }
+
+    /**
+     * <p>
+     * Registers an ordered index, allowing items to be retrieved in the order of a comparable key using
+     * the {@link Cache#range(String, Comparable, Comparable)}, {@link Cache#head(String, int)} and
+     * {@link Cache#page(String, IndexCursor, int)} methods.
+     * </p>
+     * <p>
+     * The index is built from the items currently in the cache, and is kept up to date as items are
+     * added, updated, deleted and evicted. Items with equal keys are ordered by when they were last
+     * added or updated.
+     * </p>
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @param <K> The type of the indexed key.
+     * @throws IllegalArgumentException If an index with the same name has already been registered.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public <K extends Comparable<? super K>> void addOrderedIndex(String name, Function<T, K> keyExtractor) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.registerIndex(name, new OrderedItemIndex<T, K>(item -> keyExtractor.apply(item.getItem())));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Registers an ordered index on the time at which items were added to the cache, allowing items to
+     * be retrieved from oldest to newest. See {@link Cache#addOrderedIndex(String, Function)}.
+     * </p>
+     * @param name The name by which to refer to the index.
+     * @throws IllegalArgumentException If an index with the same name has already been registered.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public void addCreatedIndex(String name) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.registerIndex(name, new OrderedItemIndex<T, Long>(CachedItem::getCreated));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Registers an ordered index on the time at which items were last modified in the cache, allowing
+     * items to be retrieved from least to most recently modified. Items that have not been modified
+     * since being added to the cache are ordered by the time at which they were added. See
+     * {@link Cache#addOrderedIndex(String, Function)}.
+     * </p>
+     * @param name The name by which to refer to the index.
+     * @throws IllegalArgumentException If an index with the same name has already been registered.
+     * @throws IllegalStateException If the cache was built without optional features by a
+     *                               {@link CacheBuilder}.
+     */
+    public void addModifiedIndex(String name) {
+        this.verifyAcceptsFeatures();
+        this.lockForWrite();
+        try {
+            this.registerIndex(name, new OrderedItemIndex<T, Long>(item -> Optional.ofNullable(item.getModified()).orElse(item.getCreated())));
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns, in order, all items in the remote repository that have a key in the named ordered index
+     * from the first key, inclusive, to the second key, exclusive.
+     * </p>
+     * <p>
+     * As with {@link Cache#all()}, this method is only to be used when the cache is in fully
+     * populated state. If this method is called when the cache is not fully populated, an
+     * {@link IllegalStateException} will be thrown.
+     * </p>
+     * @param indexName The name of the ordered index to search.
+     * @param from The lowest key to include.
+     * @param to The key at which to stop, which is not included.
+     * @param <K> The type of the indexed key.
+     * @return A list of the items in the range, in key order.
+     * @throws IllegalArgumentException If no ordered index with the provided name has been registered.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public <K extends Comparable<? super K>> List<T> range(String indexName, K from, K to) {
+        return this.readLocked(() -> {
+            OrderedItemIndex<T, K> index = this.orderedIndex(indexName);
+            if (! this.fullyPopulated) {
+                throw new IllegalStateException("Attempt to find a range in a partial cache");
+            }
+            return index.range(from, to).map(id -> this.all.get(id).getItem()).collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * <p>
+     * Returns the first items in the named ordered index, up to the requested number of items.
+     * </p>
+     * <p>
+     * As with {@link Cache#all()}, this method is only to be used when the cache is in fully
+     * populated state. If this method is called when the cache is not fully populated, an
+     * {@link IllegalStateException} will be thrown.
+     * </p>
+     * @param indexName The name of the ordered index to read.
+     * @param count The maximum number of items to return.
+     * @return A list of the first items, in key order.
+     * @throws IllegalArgumentException If no ordered index with the provided name has been registered.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public List<T> head(String indexName, int count) {
+        return this.page(indexName, null, count).getItems();
+    }
+
+    /**
+     * <p>
+     * Returns a page of items from the named ordered index, starting after the position marked by the
+     * provided cursor, or from the start of the index if no cursor is provided. The returned page
+     * contains a cursor from which to request the next page, unless there are no further items.
+     * </p>
+     * <p>
+     * Items added to the cache after the cursor position while paging will be included in later
+     * pages. As with {@link Cache#all()}, this method is only to be used when the cache is in fully
+     * populated state. If this method is called when the cache is not fully populated, an
+     * {@link IllegalStateException} will be thrown.
+     * </p>
+     * @param indexName The name of the ordered index to read.
+     * @param after The cursor returned with the previous page, or null to start from the beginning.
+     * @param count The maximum number of items to return.
+     * @return A page of items, in key order.
+     * @throws IllegalArgumentException If no ordered index with the provided name has been registered.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public IndexPage<T> page(String indexName, IndexCursor after, int count) {
+        return this.readLocked(() -> {
+            OrderedItemIndex<T, ?> index = this.orderedIndex(indexName);
+            if (! this.fullyPopulated) {
+                throw new IllegalStateException("Attempt to read a page from a partial cache");
+            }
+            List<Map.Entry<IndexCursor, Serializable>> entries = index.after(after).limit(count).collect(Collectors.toList());
+            List<T> items = entries.stream().map(entry -> this.all.get(entry.getValue()).getItem()).collect(Collectors.toList());
+            IndexCursor last = entries.isEmpty() ? null : entries.get(entries.size() - 1).getKey();
+            return new IndexPage<>(items, last != null && index.hasAfter(last) ? last : null);
+        });
+    }
+
+    private boolean passesFilter(Serializable id) {
+        return this.membershipFilter == null || this.membershipFilter.mightContain(id);
+    }
+
+    private <R> R read(Supplier<R> reader) {
+        long stamp = this.stampedLock.tryOptimisticRead();
+        if (stamp == 0) {
+            return this.readLocked(reader);
+        }
+        try {
+            R result = reader.get();
+            if (this.stampedLock.validate(stamp)) {
+                return result;
+            }
+        }
+        catch (RuntimeException e) {
+            if (this.stampedLock.validate(stamp)) {
+                throw e;
+            }
+        }
+        return this.readLocked(reader);
+    }
+
+    private <R> R readLocked(Supplier<R> reader) {
+        if (this.lock.isHeldByCurrentThread()) {
+            return reader.get();
+        }
+        long stamp = this.stampedLock.readLock();
+        try {
+            return reader.get();
+        }
+        finally {
+            this.stampedLock.unlockRead(stamp);
+        }
+    }
+
+    private void lockForWrite() {
+        this.lock.lock();
+        if (this.lock.getHoldCount() == 1) {
+            this.writeStamp = this.stampedLock.writeLock();
+        }
+    }
+
+    private void unlockForWrite() {
+        if (this.lock.getHoldCount() == 1) {
+            this.stampedLock.unlockWrite(this.writeStamp);
+        }
+        this.lock.unlock();
+    }
+
+    private Map<Serializable, CachedItem<T>> items() {
+        return this.fullyPopulated ? this.all : this.partial;
+    }
+
+    private Collection<T> allItems() {
+        if (this.itemReferences != null) {
+            return this.all.values().stream().map(CachedItem::getItem).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+        return this.all.values().stream().map(CachedItem::getItem).collect(Collectors.toList());
+    }
+
+    private Collection<T> allIfComplete() {
+        if (! this.fullyPopulated) {
+            return null;
+        }
+        Collection<T> all = this.allItems();
+        return all.size() == this.all.size() ? all : null;
+    }
+
+    private void collectCleared() {
+        if (this.itemReferences == null) {
+            return;
+        }
+        this.lockForWrite();
+        try {
+            List<Serializable> collected = this.all.entrySet()
+                    .stream()
+                    .filter(entry -> entry.getValue().getItem() == null)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            collected.forEach(this::collected);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void expunge() {
+        ItemReferences<T> itemReferences = this.itemReferences;
+        if (itemReferences == null) {
+            return;
+        }
+        Map<ItemHolder<T>, Serializable> cleared = itemReferences.expunge();
+        if (cleared.isEmpty()) {
+            return;
+        }
+        this.lockForWrite();
+        try {
+            cleared.forEach((holder, id) -> {
+                CachedItem<T> item = this.items().get(id);
+                if (item != null && item.isHeldBy(holder)) {
+                    this.collected(id);
+                }
+            });
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void collected(Serializable id, CachedItem<T> item) {
+        this.lockForWrite();
+        try {
+            if (this.items().get(id) == item) {
+                this.collected(id);
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void collected(Serializable id) {
+        if (this.fullyPopulated) {
+            this.downgradeToNotFullyPopulated();
+        }
+        this.version = null;
+        this.remove(id, RemovalCause.COLLECTED);
+        this.fire(CacheEvent.Type.EVICTED, id, null);
+    }
+
+    private Optional<T> recorded(Supplier<Optional<T>> getter) {
+        long start = System.nanoTime();
+        Optional<T> item = getter.get();
+        this.stats.recordGet(item.isPresent(), System.nanoTime() - start);
+        return item;
+    }
+
+    private Optional<T> itemById(Serializable id) {
+        this.expunge();
+        CachedItem<T> item = this.read(() -> this.passesFilter(id) ? this.items().get(id) : null);
+        if (item == null) {
+            return Optional.empty();
+        }
+        T value = item.getItem();
+        if (value == null) {
+            this.collected(id, item);
+            return Optional.empty();
+        }
+        boolean recorded = this.accessSampleRate == 1 || ThreadLocalRandom.current().nextInt(this.accessSampleRate) == 0;
+        if (recorded || item.isCompressed() || this.refreshAhead != null) {
+            long now = timestampGenerator.timestamp();
+            if (item.isCompressed()) {
+                this.items().replace(id, item, item.unheld(value).accessed(now));
+            }
+            else if (recorded) {
+                this.accessed(id, item, now);
+            }
+            if (this.refreshAhead != null) {
+                this.refreshIfDue(id, item, now);
+            }
+        }
+        return Optional.of(value);
+    }
+
+    private void accessed(Serializable id, CachedItem<T> item, long now) {
+        if (this.accessBuffer == null) {
+            this.items().replace(id, item, item.accessed(now));
+        }
+        else if (! this.accessBuffer.offer(id, now)) {
+            this.accessBuffer.tryDrain(this::applyAccess);
+            this.accessBuffer.offer(id, now);
+        }
+    }
+
+    private void drainAccesses() {
+        if (this.accessBuffer != null) {
+            this.accessBuffer.drain(this::applyAccess);
+        }
+    }
+
+    private void applyAccess(Serializable id, long accessed) {
+        CachedItem<T> item = this.items().get(id);
+        if (item != null && Optional.ofNullable(item.getAccessed()).orElse(Long.MIN_VALUE) < accessed) {
+            this.items().replace(id, item, item.accessed(accessed));
+        }
+    }
+
+    private void verifyAcceptsFeatures() {
+        if (! this.acceptsFeatures()) {
+            throw new IllegalStateException("Attempt to enable a feature on a cache built without optional features");
+        }
+    }
+
+    private void verifyAccessRecordingNotEnabled() {
+        if (this.accessSampleRate != 1 || this.accessBuffer != null) {
+            throw new IllegalStateException("Attempt to enable sampled or buffered access recording more than once");
+        }
+    }
+
+    private void refreshIfDue(Serializable id, CachedItem<T> item, long now) {
+        RefreshAhead<T> refreshAhead = this.refreshAhead;
+        long written = Optional.ofNullable(item.getModified()).orElse(item.getCreated());
+        if (written > now - refreshAhead.refreshAfterMillis || ! this.refreshing.add(id)) {
+            return;
+        }
+        long version = item.getVersion();
+        try {
+            refreshAhead.executor.execute(() -> {
+                try {
+                    this.refreshed(id, version, refreshAhead.loader.load(id));
+                }
+                finally {
+                    this.refreshing.remove(id);
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            this.refreshing.remove(id);
+        }
+    }
+
+    private void refreshed(Serializable id, long version, Optional<T> item) {
+        this.lockForWrite();
+        try {
+            CachedItem<T> cachedItem = this.items().get(id);
+            if (cachedItem == null || cachedItem.getVersion() != version) {
+                return;
+            }
+            if (item.isPresent()) {
+                this.store(id, this.modified(cachedItem, item.get()));
+                this.fire(CacheEvent.Type.RELOADED, id, item.get());
+                this.trim();
+            }
+            else {
+                this.remove(id, RemovalCause.EXPLICIT);
+                this.fire(CacheEvent.Type.RELOADED, id, null);
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void registerIndex(String name, CacheIndex<T> index) {
+        if (this.itemReferences != null) {
+            throw new IllegalStateException("Attempt to index a cache with soft or weak values");
+        }
+        if (this.indexes.containsKey(name)) {
+            throw new IllegalArgumentException("Index " + name + " already exists");
+        }
+        this.items().forEach((id, item) -> {
+            index.verify(id, item);
+            index.add(id, item);
+        });
+        this.indexes.put(name, index);
+    }
+
+    /**
+     * <p>
+     * Registers a listener to be called whenever an item is added, updated or deleted through the
+     * {@link Cache#add(Object)}, {@link Cache#update(Object)} and {@link Cache#delete(Serializable)}
+     * methods, whenever items are evicted, and whenever the cache becomes fully populated or reverts to
+     * a not fully populated state. See {@link CacheEvent.Type}.
+     * </p>
+     * <p>
+     * A deletion is reported even if the deleted item was not cached, since it still indicates that the
+     * item was deleted from the remote repository.
+     * </p>
+     * <p>
+     * Listeners are called synchronously by the thread making the change. Use the
+     * {@link Cache#subscribe(ChangeSubscriber, int, Executor)} method to receive changes asynchronously.
+     * </p>
+     * @param listener The listener to register.
+     */
+    public void addListener(CacheListener<T> listener) {
+        this.lockForWrite();
+        try {
+            this.listeners.add(listener);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Unregisters a listener previously registered using the {@link Cache#addListener(CacheListener)}
+     * method.
+     * </p>
+     * @param listener The listener to unregister.
+     */
+    public void removeListener(CacheListener<T> listener) {
+        this.lockForWrite();
+        try {
+            this.listeners.remove(listener);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Registers a listener to be told about every item removed from the cache, along with the reason
+     * it was removed. See {@link RemovalCause}.
+     * </p>
+     * <p>
+     * Removals are queued and delivered to the listener in batches on the provided executor, so that
+     * the listener never delays the operation that removed the items. Removals made in quick
+     * succession, such as by a single eviction, are generally delivered in the same batch. An item
+     * moved out of the cache by a {@link TieredCache} is not reported.
+     * </p>
+     * @param listener The listener to register.
+     * @param executor The executor on which to call the listener.
+     */
+    public void addRemovalListener(RemovalListener<T> listener, Executor executor) {
+        this.removalListeners.add(new RemovalDispatcher<>(listener, executor));
+    }
+
+    /**
+     * <p>
+     * Unregisters a listener previously registered using the
+     * {@link Cache#addRemovalListener(RemovalListener, Executor)} method. Removals already queued for
+     * the listener may still be delivered.
+     * </p>
+     * @param listener The listener to unregister.
+     */
+    public void removeRemovalListener(RemovalListener<T> listener) {
+        this.removalListeners.removeIf(dispatcher -> dispatcher.listener() == listener);
+    }
+
+    /**
+     * <p>
+     * Subscribes to the changes made to the cache, as reported to listeners registered using the
+     * {@link Cache#addListener(CacheListener)} method, delivering them asynchronously on the provided
+     * executor as the subscriber requests them.
+     * </p>
+     * <p>
+     * Changes made before the subscriber has requested them are buffered, up to the provided buffer
+     * size. Changes to the cache never wait for a subscriber. If the buffer of a subscriber that is
+     * falling behind overflows, the buffered changes are discarded and the subscriber is failed with an
+     * {@link IllegalStateException}, after which it should rebuild any derived view from the cache.
+     * </p>
+     * @param subscriber The subscriber to which to deliver changes.
+     * @param bufferSize The maximum number of changes to buffer for the subscriber.
+     * @param executor The executor on which to call the subscriber.
+     * @throws IllegalArgumentException If the buffer size is not positive.
+     */
+    public void subscribe(ChangeSubscriber<T> subscriber, int bufferSize, Executor executor) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Attempt to subscribe with an empty buffer");
+        }
+        ChangeFeedSubscription<T> subscription = new ChangeFeedSubscription<>(subscriber, bufferSize, executor, this::removeListener);
+        this.addListener(subscription);
+        subscription.start();
+    }
+
+    Serializable id(T item) {
+        return this.idExtractor.apply(item);
+    }
+
+    TimestampGenerator timestampGenerator() {
+        return this.timestampGenerator;
+    }
+
+    boolean acceptsFeatures() {
+        return true;
+    }
+
+    Optional<T> plainGet(Serializable id) {
+        CachedItem<T> item = this.read(() -> this.items().get(id));
+        if (item == null) {
+            return Optional.empty();
+        }
+        T value = item.getItem();
+        this.items().replace(id, item, (item.isCompressed() ? item.unheld(value) : item).accessed(this.timestampGenerator.timestamp()));
+        return Optional.of(value);
+    }
+
+    void plainAdd(T item) {
+        this.lockForWrite();
+        try {
+            Serializable id = this.idExtractor.apply(item);
+            if (! this.missing.isEmpty()) {
+                this.missing.remove(id);
+            }
+            CachedItem<T> previous = this.items().put(id, new CachedItem<>(item, this.timestampGenerator.timestamp(), ++ this.itemVersion));
+            if (previous != null) {
+                this.notifyRemoval(id, previous, RemovalCause.REPLACED);
+            }
+            this.fire(CacheEvent.Type.ADDED, id, item);
+            this.populated.signalAll();
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    void evictUnwritten(long ageInMillis) {
+        this.evict(item -> Optional.ofNullable(item.getModified()).orElse(item.getCreated()) < timestampGenerator.timestamp() - ageInMillis, RemovalCause.EXPIRED_MODIFIED);
+    }
+
+    boolean holds(T item) {
+        Serializable id = this.idExtractor.apply(item);
+        return this.read(() -> {
+            CachedItem<T> cachedItem = this.items().get(id);
+            return cachedItem != null && Objects.equals(cachedItem.getItem(), item);
+        });
+    }
+
+    void attach(Serializable id, CachedItem<T> item) {
+        this.lockForWrite();
+        try {
+            this.itemVersion = Math.max(this.itemVersion, item.getVersion());
+            this.store(id, item);
+            this.trim();
+            this.populated.signalAll();
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    void invalidate(Serializable id, long version) {
+        this.lockForWrite();
+        try {
+            CachedItem<T> item = this.items().get(id);
+            if (item == null ? ! this.fullyPopulated : Optional.ofNullable(item.getModified()).orElse(item.getCreated()) > version) {
+                return;
+            }
+            if (this.fullyPopulated) {
+                this.downgradeToNotFullyPopulated();
+            }
+            this.version = null;
+            if (item != null) {
+                this.remove(id, RemovalCause.INVALIDATED);
+                this.fire(CacheEvent.Type.EVICTED, id, null);
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    void reload(Serializable id, Optional<T> item) {
+        this.lockForWrite();
+        try {
+            CachedItem<T> cachedItem = this.items().get(id);
+            if (! item.isPresent()) {
+                if (cachedItem != null) {
+                    this.remove(id, RemovalCause.EXPLICIT);
+                    this.fire(CacheEvent.Type.RELOADED, id, null);
+                }
+            }
+            else if (cachedItem != null) {
+                this.store(id, this.modified(cachedItem, item.get()));
+                this.fire(CacheEvent.Type.RELOADED, id, item.get());
+                this.trim();
+            }
+            else if (this.fullyPopulated) {
+                this.store(id, this.created(item.get()));
+                this.fire(CacheEvent.Type.RELOADED, id, item.get());
+                this.trim();
+                this.populated.signalAll();
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    void reclaim(Serializable id) {
+        this.lockForWrite();
+        try {
+            CachedItem<T> item = this.items().get(id);
+            if (this.itemReferences != null && item != null) {
+                this.itemReferences.reclaim(item.getHolder());
+            }
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    Optional<CachedItem<T>> detach(Serializable id) {
+        this.lockForWrite();
+        try {
+            CachedItem<T> item = this.items().get(id);
+            T value = item == null ? null : item.getItem();
+            this.version = null;
+            this.remove(id, null);
+            return value == null ? Optional.empty() : Optional.of(item.isHeld() ? item.unheld(value) : item);
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void populate(Collection<T> all, Long version) {
+        this.clear();
+        this.staleItems = null;
+        this.fullyPopulated = true;
+        try {
+            all.forEach(item -> this.store(this.idExtractor.apply(item), this.created(item)));
+        }
+        catch (IllegalStateException e) {
+            this.evictAll();
+            throw e;
+        }
+        this.version = version;
+        this.fire(CacheEvent.Type.REPOPULATED, null, null);
+        this.trim();
+        this.populated.signalAll();
+    }
+
+    private void notifyRemoval(Serializable id, CachedItem<T> item, RemovalCause cause) {
+        if (this.removalListeners.isEmpty()) {
+            return;
+        }
+        RemovalNotification<T> removal = new RemovalNotification<>(id, item, cause);
+        this.removalListeners.forEach(dispatcher -> dispatcher.removed(removal));
+    }
+
+    private void fire(CacheEvent.Type type, Serializable id, T item) {
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+        CacheEvent<T> event = new CacheEvent<>(type, id, item);
+        this.listeners.forEach(listener -> listener.changed(event));
+    }
+
+    private ItemIndex<T> index(String name) {
+        CacheIndex<T> index = this.indexes.get(name);
+        if (! (index instanceof ItemIndex)) {
+            throw new IllegalArgumentException("Index " + name + " does not exist");
+        }
+        return (ItemIndex<T>) index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<? super K>> OrderedItemIndex<T, K> orderedIndex(String name) {
+        CacheIndex<T> index = this.indexes.get(name);
+        if (! (index instanceof OrderedItemIndex)) {
+            throw new IllegalArgumentException("Ordered index " + name + " does not exist");
+        }
+        return (OrderedItemIndex<T, K>) index;
+    }
+
+    private void store(Serializable id, CachedItem<T> item) {
+        if (! this.indexes.isEmpty()) {
+            this.indexes.values().forEach(index -> index.verify(id, item));
+        }
+        if (this.weightLimit != null) {
+            this.weigh(id, item);
+        }
+        if (! this.missing.isEmpty()) {
+            this.missing.remove(id);
+        }
+        CachedItem<T> previous = this.items().put(id, this.itemReferences == null || item.isHeld() ? item : item.held(this.itemReferences.hold(id, item.getItem())));
+        if (previous == null && this.membershipFilter != null) {
+            this.membershipFilter.add(id);
+        }
+        if (! this.indexes.isEmpty()) {
+            this.indexes.values().forEach(index -> {
+                if (previous != null) {
+                    index.remove(id, previous);
+                }
+                index.add(id, item);
+            });
+        }
+        if (previous != null) {
+            this.notifyRemoval(id, previous, RemovalCause.REPLACED);
+        }
+    }
+
+    private void remove(Serializable id, RemovalCause cause) {
+        CachedItem<T> previous = this.items().remove(id);
+        if (previous == null) {
+            return;
+        }
+        if (cause != null) {
+            this.notifyRemoval(id, previous, cause);
+            if (this.stats != null && cause.wasEvicted()) {
+                this.stats.recordEviction();
+            }
+        }
+        if (this.membershipFilter != null) {
+            this.membershipFilter.remove(id);
+        }
+        if (this.weightLimit != null) {
+            this.weight -= this.weights.remove(id);
+        }
+        if (! this.indexes.isEmpty()) {
+            this.indexes.values().forEach(index -> index.remove(id, previous));
+        }
+    }
+
+    private void clear() {
+        if (! this.removalListeners.isEmpty()) {
+            this.items().forEach((id, item) -> this.notifyRemoval(id, item, RemovalCause.RESET));
+        }
+        this.all.clear();
+        this.partial.clear();
+        this.missing.clear();
+        this.weights.clear();
+        this.weight = 0;
+        if (this.membershipFilter != null) {
+            this.membershipFilter.clear();
+        }
+        this.indexes.values().forEach(CacheIndex::clear);
+    }
+
+    private void evict(Predicate<CachedItem<T>> selector, RemovalCause cause) {
+        this.lockForWrite();
+        try {
+            List<Serializable> ids = this.items().entrySet()
+                    .stream()
+                    .filter(entry -> selector.test(entry.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return;
+            }
+            if (this.fullyPopulated) {
+                this.downgradeToNotFullyPopulated();
+            }
+            this.version = null;
+            ids.forEach(id -> {
+                this.remove(id, cause);
+                this.fire(CacheEvent.Type.EVICTED, id, null);
+            });
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private T intern(T item) {
+        return this.interner == null ? item : this.interner.intern(item);
+    }
+
+    private CachedItem<T> created(T item) {
+        return new CachedItem<>(this.intern(item), this.timestampGenerator.timestamp(), ++ this.itemVersion);
+    }
+
+    private CachedItem<T> modified(CachedItem<T> cachedItem, T item) {
+        return cachedItem.modified(this.intern(item), this.timestampGenerator.timestamp(), ++ this.itemVersion);
+    }
+
+    private void enableItemReferences(boolean soft) {
+        if (this.itemReferences != null) {
+            throw new IllegalStateException("Attempt to enable soft or weak values more than once");
+        }
+        if (! this.indexes.isEmpty()) {
+            throw new IllegalStateException("Attempt to enable soft or weak values on an indexed cache");
+        }
+        ItemReferences<T> itemReferences = new ItemReferences<>(soft);
+        this.items().replaceAll((id, item) -> item.held(itemReferences.hold(id, item.getItem())));
+        this.itemReferences = itemReferences;
+    }
+
+    private void weigh(Serializable id, CachedItem<T> item) {
+        long weight = this.weightLimit.weigher.weigh(item.getItem());
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weigher returned a negative weight for item " + id);
+        }
+        Long previous = this.weights.put(id, weight);
+        this.weight += weight - (previous == null ? 0 : previous);
+    }
+
+    private void trim() {
+        if (this.weightLimit == null || this.weight <= this.weightLimit.maxWeight) {
+            return;
+        }
+        this.drainAccesses();
+        Iterator<Serializable> ids = this.items().entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong(entry -> lastUsed(entry.getValue())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+                .iterator();
+        if (this.fullyPopulated) {
+            this.downgradeToNotFullyPopulated();
+        }
+        this.version = null;
+        while (this.weight > this.weightLimit.trimmedWeight && ids.hasNext()) {
+            Serializable id = ids.next();
+            this.remove(id, RemovalCause.SIZE);
+            this.fire(CacheEvent.Type.EVICTED, id, null);
+        }
+    }
+
+    private static long lastUsed(CachedItem<?> item) {
+        return Math.max(item.getCreated(), Math.max(
+                Optional.ofNullable(item.getAccessed()).orElse(Long.MIN_VALUE),
+                Optional.ofNullable(item.getModified()).orElse(Long.MIN_VALUE)));
+    }
+
+    private void repopulate() {
+        if (this.read(() -> this.repopulating || this.fullyPopulated && this.itemReferences == null)) {
+            return;
+        }
+        StaleWhileRevalidate<T> staleWhileRevalidate;
+        this.lockForWrite();
+        try {
+            this.expunge();
+            this.collectCleared();
+            if (this.fullyPopulated || this.repopulating) {
+                return;
+            }
+            staleWhileRevalidate = this.staleWhileRevalidate;
+            this.repopulating = true;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+        try {
+            staleWhileRevalidate.executor.execute(() -> {
+                try {
+                    this.setAll(staleWhileRevalidate.loader.loadAll());
+                }
+                finally {
+                    this.repopulated();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            this.repopulated();
+        }
+    }
+
+    private void repopulated() {
+        this.lockForWrite();
+        try {
+            this.repopulating = false;
+        }
+        finally {
+            this.unlockForWrite();
+        }
+    }
+
+    private void await(BooleanSupplier condition, long timeoutInMillis) {
+        if (this.stats != null && ! condition.getAsBoolean()) {
+            this.stats.recordWait();
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        this.stampedLock.unlockWrite(this.writeStamp);
+        try {
+            while (! condition.getAsBoolean()) {
+                if (timeoutInMillis == 0) {
+                    this.populated.await();
+                }
+                else if (remaining > 0) {
+                    remaining = this.populated.awaitNanos(remaining);
+                }
+                else {
+                    if (this.stats != null) {
+                        this.stats.recordTimeout();
+                    }
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            this.writeStamp = this.stampedLock.writeLock();
+        }
+    }
+
+    private void downgradeToNotFullyPopulated() {
+        if (this.staleWhileRevalidate != null) {
+            this.staleItems = Collections.unmodifiableCollection(this.allItems());
+            this.staleItemsTimestamp = timestampGenerator.timestamp();
+        }
+        this.partial.clear();
+        this.partial.putAll(this.all);
+        this.all.clear();
+        this.fullyPopulated = false;
+        this.fire(CacheEvent.Type.DOWNGRADED, null, null);
+    }
+
+    private static class RefreshAhead<T> {
+        private final long refreshAfterMillis;
+        private final ItemLoader<T> loader;
+        private final Executor executor;
+
+        private RefreshAhead(long refreshAfterMillis, ItemLoader<T> loader, Executor executor) {
+            this.refreshAfterMillis = refreshAfterMillis;
+            this.loader = loader;
+            this.executor = executor;
+        }
+    }
+
+    private static class WeightLimit<T> {
+        private final long maxWeight;
+        private final long trimmedWeight;
+        private final Weigher<? super T> weigher;
+
+        private WeightLimit(long maxWeight, Weigher<? super T> weigher) {
+            this.maxWeight = maxWeight;
+            this.trimmedWeight = maxWeight - maxWeight / WEIGHT_HEADROOM_DIVISOR;
+            this.weigher = weigher;
+        }
+    }
+
+    private static class StaleWhileRevalidate<T> {
+        private final long maxStaleMillis;
+        private final AllItemsLoader<T> loader;
+        private final Executor executor;
+
+        private StaleWhileRevalidate(long maxStaleMillis, AllItemsLoader<T> loader, Executor executor) {
+            this.maxStaleMillis = maxStaleMillis;
+            this.loader = loader;
+            this.executor = executor;
+        }
     }
 }
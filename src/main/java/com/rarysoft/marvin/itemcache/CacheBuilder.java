@@ -0,0 +1,372 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Builds a {@link Cache} with any of its optional features enabled, as an alternative to constructing
+ * the cache and then calling its enabling methods one by one.
+ * </p>
+ * <p>
+ * If none of the features that affect retrieving or storing individual items is requested, and no index
+ * is registered, the builder builds a specialized cache whose {@link Cache#get(Serializable)} and
+ * {@link Cache#add(Object)} methods skip those features altogether, rather than checking that each one
+ * is disabled. Such a cache throws an {@link IllegalStateException} if any of those features is enabled
+ * later. Otherwise, it builds the same {@link Cache} that calling the enabling methods directly would.
+ * Stale while revalidate, expiry, listeners and a complete collection of items can be used with either.
+ * </p>
+ * <p>
+ * Each method records a setting, replacing any earlier setting of the same feature, and the settings are
+ * only checked when the cache is built, by the enabling method of the cache that each one corresponds to.
+ * </p>
+ * @param <T> The type of item to store in the cache.
+ */
+public class CacheBuilder<T> {
+    private final Function<T, Serializable> idExtractor;
+    private final List<Consumer<Cache<T>>> indexes;
+    private final List<Consumer<Cache<T>>> listeners;
+    private TimestampGenerator timestampGenerator;
+    private Collection<T> all;
+    private Consumer<Cache<T>> accessRecording;
+    private Consumer<Cache<T>> weightLimit;
+    private Consumer<Cache<T>> itemReferences;
+    private Consumer<Cache<T>> membershipFilter;
+    private Consumer<Cache<T>> refreshAhead;
+    private Consumer<Cache<T>> staleWhileRevalidate;
+    private Consumer<Cache<T>> interning;
+    private Consumer<Cache<T>> stats;
+    private Consumer<Cache<T>> hotKeyTracking;
+    private Consumer<Cache<T>> accessExpiry;
+    private Consumer<Cache<T>> writeExpiry;
+    private int concurrencyLevel;
+
+    /**
+     * Constructs a builder of caches of items of type T, using the provided expression to uniquely
+     * identify items.
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     */
+    public CacheBuilder(Function<T, Serializable> idExtractor) {
+        this.idExtractor = idExtractor;
+        this.indexes = new ArrayList<>();
+        this.listeners = new ArrayList<>();
+        this.timestampGenerator = new SystemTimestampGenerator();
+        this.concurrencyLevel = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Uses the provided timestamp generator to generate timestamps internally, instead of the default
+     * {@link SystemTimestampGenerator}.
+     * @param timestampGenerator The timestamp generator to use.
+     * @return This builder.
+     */
+    public CacheBuilder<T> timestampGenerator(TimestampGenerator timestampGenerator) {
+        this.timestampGenerator = timestampGenerator;
+        return this;
+    }
+
+    /**
+     * Populates the cache with a complete collection of items, so that it is built in a fully populated
+     * state. See {@link Cache#setAll(Collection)}.
+     * @param all A collection containing all items in the remote repository.
+     * @return This builder.
+     */
+    public CacheBuilder<T> all(Collection<T> all) {
+        this.all = all;
+        return this;
+    }
+
+    /**
+     * Limits the number of items held in the cache. See {@link Cache#enableWeightLimit(long, Weigher)},
+     * where every item has a weight of one.
+     * @param maxItems The maximum number of items to hold.
+     * @return This builder.
+     */
+    public CacheBuilder<T> maximumSize(long maxItems) {
+        return this.weightLimit(maxItems, item -> 1);
+    }
+
+    /**
+     * Limits the total weight of the items held in the cache. See
+     * {@link Cache#enableWeightLimit(long, Weigher)}.
+     * @param maxWeight The maximum total weight of items to hold.
+     * @param weigher The weigher to use to weigh each item.
+     * @return This builder.
+     */
+    public CacheBuilder<T> weightLimit(long maxWeight, Weigher<? super T> weigher) {
+        this.weightLimit = cache -> cache.enableWeightLimit(maxWeight, weigher);
+        return this;
+    }
+
+    /**
+     * Holds items through soft references. See {@link Cache#enableSoftValues()}.
+     * @return This builder.
+     */
+    public CacheBuilder<T> softValues() {
+        this.itemReferences = Cache::enableSoftValues;
+        return this;
+    }
+
+    /**
+     * Holds items through weak references. See {@link Cache#enableWeakValues()}.
+     * @return This builder.
+     */
+    public CacheBuilder<T> weakValues() {
+        this.itemReferences = Cache::enableWeakValues;
+        return this;
+    }
+
+    /**
+     * Passes stored items through the provided interner. See {@link Cache#enableInterning(Interner)}.
+     * @param interner The interner through which to pass stored items.
+     * @return This builder.
+     */
+    public CacheBuilder<T> interning(Interner<T> interner) {
+        this.interning = cache -> cache.enableInterning(interner);
+        return this;
+    }
+
+    /**
+     * Records only a random sample of accesses. See {@link Cache#enableSampledAccessRecording(int)}.
+     * @param sampleRate The number of accesses for each access recorded.
+     * @return This builder.
+     */
+    public CacheBuilder<T> sampledAccessRecording(int sampleRate) {
+        this.accessRecording = cache -> cache.enableSampledAccessRecording(sampleRate);
+        return this;
+    }
+
+    /**
+     * Records accesses in buffers. See {@link Cache#enableBufferedAccessRecording(int)}.
+     * @param bufferSize The number of accesses each buffer can hold.
+     * @return This builder.
+     */
+    public CacheBuilder<T> bufferedAccessRecording(int bufferSize) {
+        this.accessRecording = cache -> cache.enableBufferedAccessRecording(bufferSize, this.concurrencyLevel);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads expected to retrieve items at once, which is the number of buffers used
+     * by {@link CacheBuilder#bufferedAccessRecording(int)}, rounded up to a power of two. Defaults to the
+     * number of available processors. Has no effect unless accesses are buffered.
+     * @param concurrencyLevel The number of threads expected to retrieve items at once.
+     * @return This builder.
+     */
+    public CacheBuilder<T> concurrencyLevel(int concurrencyLevel) {
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * Evicts items that have not been accessed for the provided age, checking for them at the provided
+     * interval on the provided scheduler. See {@link Cache#evictUnaccessed(long)}. The scheduler keeps
+     * a reference to the cache until it is shut down.
+     * @param ageInMillis Age in milliseconds of the oldest unaccessed timestamp to keep.
+     * @param intervalInMillis The number of milliseconds between checks for expired items.
+     * @param scheduler The scheduler on which to check for expired items.
+     * @return This builder.
+     */
+    public CacheBuilder<T> expireAfterAccess(long ageInMillis, long intervalInMillis, ScheduledExecutorService scheduler) {
+        this.accessExpiry = cache -> schedule(() -> cache.evictUnaccessed(ageInMillis), intervalInMillis, scheduler);
+        return this;
+    }
+
+    /**
+     * Evicts items that have not been added or modified for the provided age, checking for them at the
+     * provided interval on the provided scheduler. Evicted items are reported to removal listeners as
+     * {@link RemovalCause#EXPIRED_MODIFIED}. The scheduler keeps a reference to the cache until it is
+     * shut down.
+     * @param ageInMillis Age in milliseconds of the oldest added or modified timestamp to keep.
+     * @param intervalInMillis The number of milliseconds between checks for expired items.
+     * @param scheduler The scheduler on which to check for expired items.
+     * @return This builder.
+     */
+    public CacheBuilder<T> expireAfterWrite(long ageInMillis, long intervalInMillis, ScheduledExecutorService scheduler) {
+        this.writeExpiry = cache -> schedule(() -> cache.evictUnwritten(ageInMillis), intervalInMillis, scheduler);
+        return this;
+    }
+
+    /**
+     * Records statistics about the use of the cache. See {@link Cache#enableStats()}.
+     * @return This builder.
+     */
+    public CacheBuilder<T> stats() {
+        this.stats = Cache::enableStats;
+        return this;
+    }
+
+    /**
+     * Tracks the most frequently requested identifiers. See {@link Cache#enableHotKeyTracking(int)}.
+     * @param capacity The number of most frequently requested identifiers to track.
+     * @return This builder.
+     */
+    public CacheBuilder<T> hotKeyTracking(int capacity) {
+        this.hotKeyTracking = cache -> cache.enableHotKeyTracking(capacity);
+        return this;
+    }
+
+    /**
+     * Maintains a membership filter. See {@link Cache#enableMembershipFilter(long, double)}.
+     * @param expectedItems The number of items the cache is expected to hold.
+     * @param falsePositiveRate The acceptable proportion of uncached items reported as possibly cached.
+     * @return This builder.
+     */
+    public CacheBuilder<T> membershipFilter(long expectedItems, double falsePositiveRate) {
+        this.membershipFilter = cache -> cache.enableMembershipFilter(expectedItems, falsePositiveRate);
+        return this;
+    }
+
+    /**
+     * Reloads items in the background once they reach a certain age. See
+     * {@link Cache#enableRefreshAhead(long, ItemLoader, Executor)}.
+     * @param refreshAfterMillis The age in milliseconds after which to reload an item when retrieved.
+     * @param loader The loader to use to load items from the remote repository.
+     * @param executor The executor on which to run reloads.
+     * @return This builder.
+     */
+    public CacheBuilder<T> refreshAhead(long refreshAfterMillis, ItemLoader<T> loader, Executor executor) {
+        this.refreshAhead = cache -> cache.enableRefreshAhead(refreshAfterMillis, loader, executor);
+        return this;
+    }
+
+    /**
+     * Serves stale items while the cache is repopulated. See
+     * {@link Cache#enableStaleWhileRevalidate(long, AllItemsLoader, Executor)}.
+     * @param maxStaleMillis The number of milliseconds for which to keep returning stale items.
+     * @param loader The loader to use to load all items from the remote repository.
+     * @param executor The executor on which to run repopulations.
+     * @return This builder.
+     */
+    public CacheBuilder<T> staleWhileRevalidate(long maxStaleMillis, AllItemsLoader<T> loader, Executor executor) {
+        this.staleWhileRevalidate = cache -> cache.enableStaleWhileRevalidate(maxStaleMillis, loader, executor);
+        return this;
+    }
+
+    /**
+     * Registers a secondary index. See {@link Cache#addIndex(String, Function)}.
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @return This builder.
+     */
+    public CacheBuilder<T> index(String name, Function<T, ?> keyExtractor) {
+        this.indexes.add(cache -> cache.addIndex(name, keyExtractor));
+        return this;
+    }
+
+    /**
+     * Registers a unique secondary index. See {@link Cache#addUniqueIndex(String, Function)}.
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @return This builder.
+     */
+    public CacheBuilder<T> uniqueIndex(String name, Function<T, ?> keyExtractor) {
+        this.indexes.add(cache -> cache.addUniqueIndex(name, keyExtractor));
+        return this;
+    }
+
+    /**
+     * Registers an ordered index. See {@link Cache#addOrderedIndex(String, Function)}.
+     * @param name The name by which to refer to the index.
+     * @param keyExtractor The expression to use to extract the indexed key from an item.
+     * @param <K> The type of the indexed key.
+     * @return This builder.
+     */
+    public <K extends Comparable<? super K>> CacheBuilder<T> orderedIndex(String name, Function<T, K> keyExtractor) {
+        this.indexes.add(cache -> cache.addOrderedIndex(name, keyExtractor));
+        return this;
+    }
+
+    /**
+     * Registers a listener. See {@link Cache#addListener(CacheListener)}.
+     * @param listener The listener to register.
+     * @return This builder.
+     */
+    public CacheBuilder<T> listener(CacheListener<T> listener) {
+        this.listeners.add(cache -> cache.addListener(listener));
+        return this;
+    }
+
+    /**
+     * Registers a removal listener. See {@link Cache#addRemovalListener(RemovalListener, Executor)}.
+     * @param listener The listener to register.
+     * @param executor The executor on which to call the listener.
+     * @return This builder.
+     */
+    public CacheBuilder<T> removalListener(RemovalListener<T> listener, Executor executor) {
+        this.listeners.add(cache -> cache.addRemovalListener(listener, executor));
+        return this;
+    }
+
+    /**
+     * <p>
+     * Builds a cache with the requested features. The cache is populated after the features are
+     * enabled, if items were provided, so that the items are stored through every requested feature.
+     * Checking for expired items is scheduled last.
+     * </p>
+     * @return The cache.
+     * @throws IllegalArgumentException If any of the settings is invalid.
+     * @throws IllegalStateException If the requested features cannot be combined, such as indexes with
+     *                               soft or weak values.
+     */
+    public Cache<T> build() {
+        List<Consumer<Cache<T>>> features = Arrays.asList(this.accessRecording, this.weightLimit, this.itemReferences, this.membershipFilter, this.refreshAhead, this.interning, this.stats, this.hotKeyTracking);
+        Cache<T> cache = features.stream().allMatch(Objects::isNull) && this.indexes.isEmpty()
+                ? new PlainCache<>(this.timestampGenerator, this.idExtractor)
+                : new Cache<>(this.timestampGenerator, this.idExtractor);
+        features.stream().filter(Objects::nonNull).forEach(feature -> feature.accept(cache));
+        if (this.staleWhileRevalidate != null) {
+            this.staleWhileRevalidate.accept(cache);
+        }
+        this.indexes.forEach(index -> index.accept(cache));
+        this.listeners.forEach(listener -> listener.accept(cache));
+        if (this.all != null) {
+            cache.setAll(this.all);
+        }
+        Arrays.asList(this.accessExpiry, this.writeExpiry).stream().filter(Objects::nonNull).forEach(expiry -> expiry.accept(cache));
+        return cache;
+    }
+
+    private static void schedule(Runnable eviction, long intervalInMillis, ScheduledExecutorService scheduler) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                eviction.run();
+            }
+            catch (RuntimeException e) {
+                // The next scheduled check tries again.
+            }
+        }, intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+    }
+}
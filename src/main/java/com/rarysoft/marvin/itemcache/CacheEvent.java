@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * <p>
+ * Describes a change made to a {@link Cache}.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class CacheEvent<T> {
+    /**
+     * The kinds of change that can be made to a cache.
+     */
+    public enum Type {
+        /**
+         * An item was added to the cache.
+         */
+        ADDED,
+
+        /**
+         * A cached item was replaced with a modified item.
+         */
+        UPDATED,
+
+        /**
+         * An item was deleted from the cache, or from the remote repository if it was not cached.
+         */
+        DELETED,
+
+        /**
+         * An item was evicted from the cache, but not from the remote repository. An eviction of all
+         * items is reported as a single event without an identifier.
+         */
+        EVICTED,
+
+        /**
+         * A cached item was brought up to date with the remote repository, by refresh ahead, by a
+         * reload requested by an {@link InvalidationBus}, or by the
+         * {@link Cache#sync(long, long, java.util.Collection, java.util.Collection)} method, rather than
+         * changed through the cache. Reported with the reloaded item, or without an item if the item no
+         * longer exists and was removed from the cache. Not broadcast by an {@link InvalidationBus}, so
+         * that the nodes of a cluster do not keep invalidating each other's reloads.
+         */
+        RELOADED,
+
+        /**
+         * The cache was populated with all items from the remote repository, or brought up to date with
+         * them, and is now fully populated. Reported without an identifier.
+         */
+        REPOPULATED,
+
+        /**
+         * The cache reverted from a fully populated to a not fully populated state. Reported without an
+         * identifier.
+         */
+        DOWNGRADED
+    }
+
+    private final Type type;
+    private final Serializable id;
+    private final T item;
+
+    CacheEvent(Type type, Serializable id, T item) {
+        this.type = type;
+        this.id = id;
+        this.item = item;
+    }
+
+    /**
+     * @return The kind of change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The unique identifier of the changed item, or null if the change concerns the whole
+     *         cache.
+     */
+    public Serializable getId() {
+        return id;
+    }
+
+    /**
+     * @return The item as added or updated, or an empty result for other kinds of change.
+     */
+    public Optional<T> getItem() {
+        return Optional.ofNullable(item);
+    }
+}
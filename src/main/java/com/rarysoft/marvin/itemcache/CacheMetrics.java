@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ServiceLoader;
+
+/**
+ * <p>
+ * Publishes the statistics of a {@link Cache}, as returned by its {@link Cache#getStats()} method, over
+ * JMX or through any {@link MetricsBinder} services available.
+ * </p>
+ * <p>
+ * Statistics other than the numbers of items held and the state of the cache are only recorded once
+ * enabled by the {@link Cache#enableStats()} method.
+ * </p>
+ */
+public final class CacheMetrics {
+    private static final String DOMAIN = "com.rarysoft.marvin.itemcache";
+
+    private CacheMetrics() {
+    }
+
+    /**
+     * Registers an MXBean publishing the statistics of a cache with the platform MBean server, under
+     * the object name <code>com.rarysoft.marvin.itemcache:type=Cache,name=</code> followed by the
+     * provided name, quoted if necessary.
+     * @param cache The cache whose statistics to publish.
+     * @param name The name under which to publish the statistics.
+     * @return The object name under which the MXBean was registered, which can be used to unregister it.
+     * @throws IllegalStateException If an MXBean is already registered under the same name, or cannot
+     *                               be registered.
+     */
+    public static ObjectName registerMXBean(Cache<?> cache, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Cache,name=" + (name.matches("[\\w.-]+") ? name : ObjectName.quote(name)));
+            return ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsMBean(cache), objectName).getObjectName();
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Unable to register statistics of cache " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters an MXBean previously registered using the
+     * {@link CacheMetrics#registerMXBean(Cache, String)} method. Nothing is done if it is not registered.
+     * @param objectName The object name under which the MXBean was registered.
+     */
+    public static void unregisterMXBean(ObjectName objectName) {
+        try {
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister " + objectName, e);
+        }
+    }
+
+    /**
+     * Passes the statistics of a cache to every {@link MetricsBinder} service found by the
+     * {@link ServiceLoader} of the calling thread's context class loader.
+     * @param cache The cache whose statistics to publish.
+     * @param name The name under which to publish the statistics.
+     * @return The number of binders to which the statistics were passed.
+     */
+    public static int bind(Cache<?> cache, String name) {
+        int bound = 0;
+        for (MetricsBinder binder : ServiceLoader.load(MetricsBinder.class)) {
+            binder.bind(name, cache::getStats);
+            bound ++;
+        }
+        return bound;
+    }
+
+    private static class CacheStatsMBean implements CacheStatsMXBean {
+        private final Cache<?> cache;
+
+        private CacheStatsMBean(Cache<?> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean isFullyPopulated() {
+            return this.cache.getStats().isFullyPopulated();
+        }
+
+        @Override
+        public int getFullItemCount() {
+            return this.cache.getStats().getFullItemCount();
+        }
+
+        @Override
+        public int getPartialItemCount() {
+            return this.cache.getStats().getPartialItemCount();
+        }
+
+        @Override
+        public long getHitCount() {
+            return this.cache.getStats().getHitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return this.cache.getStats().getMissCount();
+        }
+
+        @Override
+        public double getHitRatio() {
+            return this.cache.getStats().getHitRatio();
+        }
+
+        @Override
+        public double getAverageGetNanos() {
+            return this.cache.getStats().getAverageGetNanos();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return this.cache.getStats().getEvictionCount();
+        }
+
+        @Override
+        public long getWaitCount() {
+            return this.cache.getStats().getWaitCount();
+        }
+
+        @Override
+        public long getTimeoutCount() {
+            return this.cache.getStats().getTimeoutCount();
+        }
+    }
+}
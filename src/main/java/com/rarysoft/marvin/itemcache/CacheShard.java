@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * One partition of a {@link PartitionedCache}, which holds the items whose identifiers map onto it.
+ * A shard may be a local {@link Cache}, through a {@link LocalCacheShard}, or a stand-in for a cache
+ * on another node, in which case the methods below are to be implemented as calls to that node.
+ * </p>
+ * <p>
+ * Each method has the same contract as the corresponding {@link Cache} method.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public interface CacheShard<T> {
+    /**
+     * Returns all items in the shard, as described by {@link Cache#all()}.
+     * @return A stream of all items in the shard.
+     * @throws IllegalStateException If the shard is not fully populated.
+     */
+    Stream<T> all();
+
+    /**
+     * Stores a complete collection of the items that map onto the shard, as described by
+     * {@link Cache#setAll(Collection)}.
+     * @param all All items in the remote repository that map onto the shard.
+     */
+    void setAll(Collection<T> all);
+
+    /**
+     * Indicates whether or not the shard is fully populated, as described by
+     * {@link Cache#isFullyPopulated()}.
+     * @return An indication of whether or not the shard is fully populated.
+     */
+    boolean isFullyPopulated();
+
+    /**
+     * Returns the number of items in the shard, as described by {@link Cache#size()}.
+     * @return The number of items in the shard.
+     * @throws IllegalStateException If the shard is not fully populated.
+     */
+    int size();
+
+    /**
+     * Indicates whether or not the shard contains an item, as described by
+     * {@link Cache#contains(Serializable)}.
+     * @param id The unique identifier of the item.
+     * @return An indication of whether or not the shard contains the item.
+     */
+    boolean contains(Serializable id);
+
+    /**
+     * Gets an item from the shard, as described by {@link Cache#get(Serializable)}.
+     * @param id The unique identifier of the item.
+     * @return The item, or an empty result if the shard does not contain it.
+     */
+    Optional<T> get(Serializable id);
+
+    /**
+     * Adds an item to the shard, as described by {@link Cache#add(Object)}.
+     * @param item The item to add.
+     */
+    void add(T item);
+
+    /**
+     * Updates an item in the shard, as described by {@link Cache#update(Object)}.
+     * @param item The item to update.
+     * @throws IllegalStateException If the shard is fully populated but does not contain the item.
+     */
+    void update(T item);
+
+    /**
+     * Deletes an item from the shard, as described by {@link Cache#delete(Serializable)}.
+     * @param id The unique identifier of the item to delete.
+     * @throws IllegalStateException If the shard is fully populated but does not contain the item.
+     */
+    void delete(Serializable id);
+}
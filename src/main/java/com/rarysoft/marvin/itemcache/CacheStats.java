@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A snapshot of the state and statistics of a {@link Cache}, as returned by the {@link Cache#getStats()}
+ * method.
+ * </p>
+ * <p>
+ * The item counts and state are always available. The remaining statistics are only recorded once
+ * enabled by the {@link Cache#enableStats()} method, and are zero until then. They count from when
+ * they were enabled, and never decrease.
+ * </p>
+ */
+public class CacheStats {
+    private final boolean fullyPopulated;
+    private final int fullItemCount;
+    private final int partialItemCount;
+    private final long hitCount;
+    private final long missCount;
+    private final long totalGetNanos;
+    private final long evictionCount;
+    private final long waitCount;
+    private final long timeoutCount;
+
+    CacheStats(boolean fullyPopulated, int fullItemCount, int partialItemCount, long hitCount, long missCount, long totalGetNanos, long evictionCount, long waitCount, long timeoutCount) {
+        this.fullyPopulated = fullyPopulated;
+        this.fullItemCount = fullItemCount;
+        this.partialItemCount = partialItemCount;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.totalGetNanos = totalGetNanos;
+        this.evictionCount = evictionCount;
+        this.waitCount = waitCount;
+        this.timeoutCount = timeoutCount;
+    }
+
+    /**
+     * Indicates whether or not the cache was fully populated.
+     * @return An indication of whether or not the cache was fully populated.
+     */
+    public boolean isFullyPopulated() {
+        return this.fullyPopulated;
+    }
+
+    /**
+     * Returns the number of items held while the cache was fully populated, which is zero if it was not.
+     * @return The number of items held as a complete replica.
+     */
+    public int getFullItemCount() {
+        return this.fullItemCount;
+    }
+
+    /**
+     * Returns the number of items held while the cache was not fully populated, which is zero if it was.
+     * @return The number of items held as a partial replica.
+     */
+    public int getPartialItemCount() {
+        return this.partialItemCount;
+    }
+
+    /**
+     * Returns the number of times an item was found by the {@link Cache#get(Serializable)} and
+     * {@link Cache#get(Serializable, long)} methods.
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of times an item was not found by the {@link Cache#get(Serializable)} and
+     * {@link Cache#get(Serializable, long)} methods.
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the proportion of retrievals that found the item, which is one if there have been none.
+     * @return The hit ratio, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long requests = this.hitCount + this.missCount;
+        return requests == 0 ? 1.0 : (double) this.hitCount / requests;
+    }
+
+    /**
+     * Returns the total time spent retrieving items, including any time spent waiting for them.
+     * @return The total retrieval time in nanoseconds.
+     */
+    public long getTotalGetNanos() {
+        return this.totalGetNanos;
+    }
+
+    /**
+     * Returns the average time spent retrieving an item, which is zero if there have been no retrievals.
+     * @return The average retrieval time in nanoseconds.
+     */
+    public double getAverageGetNanos() {
+        long requests = this.hitCount + this.missCount;
+        return requests == 0 ? 0.0 : (double) this.totalGetNanos / requests;
+    }
+
+    /**
+     * Returns the number of items evicted, as opposed to deleted or replaced. See
+     * {@link RemovalCause#wasEvicted()}.
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Returns the number of times the {@link Cache#get(Serializable, long)} and {@link Cache#all(long)}
+     * methods waited for the cache to be populated.
+     * @return The number of waits.
+     */
+    public long getWaitCount() {
+        return this.waitCount;
+    }
+
+    /**
+     * Returns the number of waits that ended without the cache being populated in time.
+     * @return The number of timeouts.
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount;
+    }
+}
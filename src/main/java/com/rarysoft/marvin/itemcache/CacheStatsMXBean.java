@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+/**
+ * <p>
+ * The management interface through which the statistics of a {@link Cache} are published over JMX, once
+ * registered using the {@link CacheMetrics#registerMXBean(Cache, String)} method. Each attribute is read
+ * from a fresh {@link CacheStats} snapshot.
+ * </p>
+ */
+public interface CacheStatsMXBean {
+    /**
+     * See {@link CacheStats#isFullyPopulated()}.
+     * @return An indication of whether or not the cache is fully populated.
+     */
+    boolean isFullyPopulated();
+
+    /**
+     * See {@link CacheStats#getFullItemCount()}.
+     * @return The number of items held as a complete replica.
+     */
+    int getFullItemCount();
+
+    /**
+     * See {@link CacheStats#getPartialItemCount()}.
+     * @return The number of items held as a partial replica.
+     */
+    int getPartialItemCount();
+
+    /**
+     * See {@link CacheStats#getHitCount()}.
+     * @return The number of hits.
+     */
+    long getHitCount();
+
+    /**
+     * See {@link CacheStats#getMissCount()}.
+     * @return The number of misses.
+     */
+    long getMissCount();
+
+    /**
+     * See {@link CacheStats#getHitRatio()}.
+     * @return The hit ratio, between 0 and 1.
+     */
+    double getHitRatio();
+
+    /**
+     * See {@link CacheStats#getAverageGetNanos()}.
+     * @return The average retrieval time in nanoseconds.
+     */
+    double getAverageGetNanos();
+
+    /**
+     * See {@link CacheStats#getEvictionCount()}.
+     * @return The number of evictions.
+     */
+    long getEvictionCount();
+
+    /**
+     * See {@link CacheStats#getWaitCount()}.
+     * @return The number of waits.
+     */
+    long getWaitCount();
+
+    /**
+     * See {@link CacheStats#getTimeoutCount()}.
+     * @return The number of timeouts.
+     */
+    long getTimeoutCount();
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * <p>
+ * A larger, slower store of cached items that sits behind the in-memory {@link Cache} of a
+ * {@link TieredCache}. Items are stored along with their cache meta-data, so that it survives moving
+ * between tiers.
+ * </p>
+ * <p>
+ * Items are exchanged as {@link CachedItem} instances, since the meta-data is what decides when an
+ * item is evicted or refreshed. A tier that cannot keep the instances themselves, such as one that
+ * serializes them, keeps the item and its meta-data, and restores them using the
+ * {@link CachedItem#CachedItem(Object, long, Long, Long, long)} constructor.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public interface CacheTier<T> {
+    /**
+     * Returns the item stored under the provided identifier, along with its cache meta-data.
+     * @param id The unique identifier of the item.
+     * @return The stored item, or an empty result if no item is stored under the identifier.
+     */
+    Optional<CachedItem<T>> get(Serializable id);
+
+    /**
+     * Stores an item and its cache meta-data under the provided identifier, replacing any item already
+     * stored under it. The item is always held directly, never through a soft or weak reference or in
+     * compressed form.
+     * @param id The unique identifier of the item.
+     * @param item The item to store.
+     */
+    void put(Serializable id, CachedItem<T> item);
+
+    /**
+     * Removes the item stored under the provided identifier. If no item is stored under it, nothing
+     * happens.
+     * @param id The unique identifier of the item.
+     */
+    void remove(Serializable id);
+
+    /**
+     * Indicates whether or not an item is stored under the provided identifier.
+     * @param id The unique identifier of the item.
+     * @return An indication of whether or not an item is stored under the identifier.
+     */
+    boolean contains(Serializable id);
+
+    /**
+     * Removes all stored items.
+     */
+    void clear();
+}
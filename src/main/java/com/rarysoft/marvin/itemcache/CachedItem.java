@@ -24,7 +24,7 @@
 package com.rarysoft.marvin.itemcache;
 
 public class CachedItem<T> {
-    private final T item;
+    private final Object item;
 
     private final long created;
 
@@ -32,19 +32,40 @@ public class CachedItem<T> {
 
     private final Long modified;
 
-    private CachedItem(T item, long created, Long accessed, Long modified) {
+    private final long version;
+
+    /**
+     * Restores an item and its cache meta-data, as kept by a {@link CacheTier}.
+     * @param item The item.
+     * @param created The time at which the item was added to the cache.
+     * @param accessed The time at which the item was last accessed, or null if it has not been accessed.
+     * @param modified The time at which the item was last modified, or null if it has not been modified.
+     * @param version The version of the item, as returned by {@link CachedItem#getVersion()}.
+     */
+    public CachedItem(T item, long created, Long accessed, Long modified, long version) {
         this.item = item;
         this.created = created;
         this.accessed = accessed;
         this.modified = modified;
+        this.version = version;
     }
 
     public CachedItem(T item, long created) {
-        this(item, created, null, null);
+        this(item, created, null, null, 1);
+    }
+
+    CachedItem(T item, long created, long version) {
+        this(item, created, null, null, version);
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> CachedItem<T> ofStored(Object stored, long created, Long accessed, Long modified, long version) {
+        return new CachedItem<>((T) stored, created, accessed, modified, version);
+    }
+
+    @SuppressWarnings("unchecked")
     public T getItem() {
-        return item;
+        return item instanceof ItemHolder ? ((ItemHolder<T>) item).get() : (T) item;
     }
 
     public long getCreated() {
@@ -59,11 +80,44 @@ public class CachedItem<T> {
         return modified;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public CachedItem<T> accessed(long accessed) {
-        return new CachedItem<>(this.item, this.created, accessed, this.modified);
+        return ofStored(this.item, this.created, accessed, this.modified, this.version);
     }
 
     public CachedItem<T> modified(T item, long modified) {
-        return new CachedItem<>(item, this.created, this.accessed, modified);
+        return this.modified(item, modified, this.version + 1);
+    }
+
+    CachedItem<T> modified(T item, long modified, long version) {
+        return new CachedItem<>(item, this.created, this.accessed, modified, version);
+    }
+
+    CachedItem<T> held(ItemHolder<T> holder) {
+        return ofStored(holder, this.created, this.accessed, this.modified, this.version);
+    }
+
+    boolean isCompressed() {
+        return item instanceof CompressedItem;
+    }
+
+    CachedItem<T> unheld(T item) {
+        return new CachedItem<>(item, this.created, this.accessed, this.modified, this.version);
+    }
+
+    boolean isHeld() {
+        return item instanceof ItemHolder;
+    }
+
+    boolean isHeldBy(ItemHolder<?> holder) {
+        return item == holder;
+    }
+
+    @SuppressWarnings("unchecked")
+    ItemHolder<T> getHolder() {
+        return item instanceof ItemHolder ? (ItemHolder<T>) item : null;
     }
 }
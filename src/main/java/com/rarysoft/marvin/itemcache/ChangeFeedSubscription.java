@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Buffers the changes made to a {@link Cache} for a single {@link ChangeSubscriber}, and delivers them
+ * on an executor as the subscriber requests them, so that changes to the cache never wait for the
+ * subscriber.
+ * </p>
+ * <p>
+ * At most one delivery task is scheduled at a time, which keeps the calls to the subscriber in order
+ * and never concurrent. If the buffer is full when a change is made, the buffered changes are discarded
+ * and the subscriber is failed.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+class ChangeFeedSubscription<T> implements ChangeSubscription, CacheListener<T> {
+    private final ChangeSubscriber<T> subscriber;
+    private final int bufferSize;
+    private final Executor executor;
+    private final Consumer<ChangeFeedSubscription<T>> unsubscriber;
+    private final ReentrantLock lock;
+    private final Deque<CacheEvent<T>> buffer;
+
+    private long demand;
+    private Throwable error;
+    private boolean subscribed;
+    private boolean scheduled;
+    private boolean cancelled;
+
+    ChangeFeedSubscription(ChangeSubscriber<T> subscriber, int bufferSize, Executor executor, Consumer<ChangeFeedSubscription<T>> unsubscriber) {
+        this.subscriber = subscriber;
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        this.unsubscriber = unsubscriber;
+        this.lock = new ReentrantLock();
+        this.buffer = new ArrayDeque<>();
+    }
+
+    /**
+     * Schedules the call to {@link ChangeSubscriber#onSubscribe(ChangeSubscription)}.
+     */
+    void start() {
+        this.schedule();
+    }
+
+    @Override
+    public void changed(CacheEvent<T> event) {
+        this.lock.lock();
+        try {
+            if (this.cancelled || this.error != null) {
+                return;
+            }
+            if (this.buffer.size() >= this.bufferSize) {
+                this.buffer.clear();
+                this.error = new IllegalStateException("Change feed buffer overflowed");
+            }
+            else {
+                this.buffer.add(event);
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        this.schedule();
+    }
+
+    @Override
+    public void request(long count) {
+        this.lock.lock();
+        try {
+            if (count <= 0) {
+                this.buffer.clear();
+                this.error = new IllegalArgumentException("Attempt to request a non-positive number of changes");
+            }
+            else {
+                this.demand = this.demand + count < 0 ? Long.MAX_VALUE : this.demand + count;
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        this.schedule();
+    }
+
+    @Override
+    public void cancel() {
+        this.lock.lock();
+        try {
+            this.cancelled = true;
+            this.buffer.clear();
+        }
+        finally {
+            this.lock.unlock();
+        }
+        this.unsubscriber.accept(this);
+    }
+
+    private void schedule() {
+        this.lock.lock();
+        try {
+            if (this.scheduled || this.cancelled) {
+                return;
+            }
+            this.scheduled = true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+        try {
+            this.executor.execute(this::deliver);
+        }
+        catch (RuntimeException e) {
+            this.cancel();
+        }
+    }
+
+    private void deliver() {
+        try {
+            if (! this.subscribed) {
+                this.subscribed = true;
+                this.subscriber.onSubscribe(this);
+            }
+            while (true) {
+                CacheEvent<T> event = null;
+                Throwable error = null;
+                this.lock.lock();
+                try {
+                    if (this.cancelled) {
+                        return;
+                    }
+                    if (this.error != null) {
+                        error = this.error;
+                        this.cancelled = true;
+                    }
+                    else if (this.demand > 0 && ! this.buffer.isEmpty()) {
+                        event = this.buffer.poll();
+                        if (this.demand != Long.MAX_VALUE) {
+                            this.demand --;
+                        }
+                    }
+                    else {
+                        this.scheduled = false;
+                        return;
+                    }
+                }
+                finally {
+                    this.lock.unlock();
+                }
+                if (error != null) {
+                    this.unsubscriber.accept(this);
+                    this.subscriber.onError(error);
+                    return;
+                }
+                this.subscriber.onNext(event);
+            }
+        }
+        catch (RuntimeException e) {
+            this.cancel();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * Receives the changes made to a {@link Cache}, as many as it has requested, after subscribing using
+ * the {@link Cache#subscribe(ChangeSubscriber, int, Executor)} method.
+ * </p>
+ * <p>
+ * The methods of a subscriber are called one at a time, in order, and never concurrently. The first
+ * call is always to {@link ChangeSubscriber#onSubscribe(ChangeSubscription)}. No further calls are
+ * made after a call to {@link ChangeSubscriber#onError(Throwable)}, or after the subscription is
+ * cancelled.
+ * </p>
+ * <p>
+ * The changes made to a cache never come to an end, so a subscription only ends when it fails or is
+ * cancelled.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public interface ChangeSubscriber<T> {
+    /**
+     * Called once the subscription is established. No changes are delivered until they are requested
+     * through the subscription.
+     * @param subscription The subscription through which to request changes.
+     */
+    void onSubscribe(ChangeSubscription subscription);
+
+    /**
+     * Called with each change, in the order in which the changes were made to the cache.
+     * @param event The change.
+     */
+    void onNext(CacheEvent<T> event);
+
+    /**
+     * Called if the subscription fails, such as when changes are made faster than they are requested
+     * and the buffer of the subscription overflows. Changes may have been missed, so any view derived
+     * from the changes should be rebuilt from the cache before subscribing again.
+     * @param error The cause of the failure.
+     */
+    void onError(Throwable error);
+}
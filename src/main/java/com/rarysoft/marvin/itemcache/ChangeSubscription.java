@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+/**
+ * <p>
+ * Links a {@link ChangeSubscriber} to the {@link Cache} to which it subscribed, allowing it to request
+ * changes as it is ready to receive them, and to stop receiving them.
+ * </p>
+ */
+public interface ChangeSubscription {
+    /**
+     * Requests further changes, adding to any that were requested but not yet delivered. Requesting
+     * {@link Long#MAX_VALUE} changes removes any limit.
+     * @param count The number of further changes to deliver, which must be positive. A count that is
+     *              not positive causes the subscription to fail with an
+     *              {@link IllegalArgumentException}.
+     */
+    void request(long count);
+
+    /**
+     * Stops the delivery of changes, discarding any that are buffered.
+     */
+    void cancel();
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable consistent hash ring, which maps keys onto a set of named nodes so that adding or
+ * removing a node only changes the mapping of the keys that move to or from that node. Each node is
+ * placed on the ring at several points, to spread keys evenly between nodes.
+ * </p>
+ * @param <N> The type of node.
+ */
+class ConsistentHashRing<N> {
+    private final int pointsPerNode;
+    private final Map<String, N> nodes;
+    private final NavigableMap<Long, String> points;
+
+    ConsistentHashRing(int pointsPerNode) {
+        this(pointsPerNode, Collections.emptyMap());
+    }
+
+    private ConsistentHashRing(int pointsPerNode, Map<String, N> nodes) {
+        if (pointsPerNode <= 0) {
+            throw new IllegalArgumentException("Points per node must be positive");
+        }
+        this.pointsPerNode = pointsPerNode;
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        this.points = new TreeMap<>();
+        this.nodes.keySet().forEach(name -> {
+            for (int i = 0; i < pointsPerNode; i ++) {
+                this.points.putIfAbsent(Hashing.hash(name + "#" + i), name);
+            }
+        });
+    }
+
+    ConsistentHashRing<N> withNode(String name, N node) {
+        if (this.nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Node " + name + " already exists");
+        }
+        Map<String, N> nodes = new LinkedHashMap<>(this.nodes);
+        nodes.put(name, node);
+        return new ConsistentHashRing<>(this.pointsPerNode, nodes);
+    }
+
+    ConsistentHashRing<N> withoutNode(String name) {
+        if (! this.nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Node " + name + " does not exist");
+        }
+        Map<String, N> nodes = new LinkedHashMap<>(this.nodes);
+        nodes.remove(name);
+        return new ConsistentHashRing<>(this.pointsPerNode, nodes);
+    }
+
+    N nodeFor(Object key) {
+        if (this.points.isEmpty()) {
+            throw new IllegalStateException("Attempt to locate a key on an empty ring");
+        }
+        Map.Entry<Long, String> point = this.points.ceilingEntry(Hashing.hash(key));
+        return this.nodes.get((point == null ? this.points.firstEntry() : point).getValue());
+    }
+
+    Collection<N> nodes() {
+        return this.nodes.values();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A counting Bloom filter, which answers whether an object might have been added to it, or has
+ * definitely not been added to it. Unlike a plain Bloom filter, objects can also be removed.
+ * </p>
+ * <p>
+ * Each position in the filter holds a four bit counter. A counter that reaches its maximum value
+ * stays there, so that removals can never produce a false negative, at the cost of slightly raising
+ * the false positive rate for the objects that share it.
+ * </p>
+ */
+class CountingBloomFilter {
+    private static final int MAX_COUNT = 0xF;
+    private static final double LN2 = Math.log(2);
+
+    private final byte[] counters;
+    private final int size;
+    private final int hashes;
+
+    CountingBloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0) {
+            throw new IllegalArgumentException("Expected items must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long size = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (LN2 * LN2));
+        this.size = (int) Math.min(Math.max(size, 1), Integer.MAX_VALUE - 8);
+        this.hashes = (int) Math.max(1, Math.round((double) this.size / expectedItems * LN2));
+        this.counters = new byte[(this.size + 1) / 2];
+    }
+
+    boolean mightContain(Object value) {
+        long hash = Hashing.hash(value);
+        for (int i = 0; i < this.hashes; i ++) {
+            if (this.count(this.position(hash, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(Object value) {
+        long hash = Hashing.hash(value);
+        for (int i = 0; i < this.hashes; i ++) {
+            int position = this.position(hash, i);
+            int count = this.count(position);
+            if (count < MAX_COUNT) {
+                this.setCount(position, count + 1);
+            }
+        }
+    }
+
+    void remove(Object value) {
+        long hash = Hashing.hash(value);
+        for (int i = 0; i < this.hashes; i ++) {
+            int position = this.position(hash, i);
+            int count = this.count(position);
+            if (count > 0 && count < MAX_COUNT) {
+                this.setCount(position, count - 1);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(this.counters, (byte) 0);
+    }
+
+    private int position(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % this.size;
+    }
+
+    private int count(int position) {
+        return (this.counters[position >> 1] >> ((position & 1) << 2)) & MAX_COUNT;
+    }
+
+    private void setCount(int position, int count) {
+        int shift = (position & 1) << 2;
+        int index = position >> 1;
+        this.counters[index] = (byte) ((this.counters[index] & ~(MAX_COUNT << shift)) | (count << shift));
+    }
+}
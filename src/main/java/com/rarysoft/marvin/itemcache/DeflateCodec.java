@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>
+ * A {@link ValueCodec} that serializes items using Java serialization and compresses the result using
+ * the Deflate algorithm, favouring speed over compression by default.
+ * </p>
+ * <p>
+ * Items are only ever decoded from data encoded by the same codec in the same process, so the data is
+ * trusted.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class DeflateCodec<T extends Serializable> implements ValueCodec<T> {
+    private final int level;
+
+    /**
+     * Constructs a codec that uses the fastest compression level.
+     */
+    public DeflateCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Constructs a codec that uses the provided compression level.
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} to
+     *              {@link Deflater#BEST_COMPRESSION}.
+     * @throws IllegalArgumentException If the compression level is not valid.
+     */
+    public DeflateCodec(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        this.level = level;
+    }
+
+    @Override
+    public byte[] encode(T item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(this.level);
+        try (ObjectOutputStream output = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            output.writeObject(item);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(byte[] data) {
+        try (ObjectInputStream input = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            return (T) input.readObject();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to decode item", e);
+        }
+    }
+}
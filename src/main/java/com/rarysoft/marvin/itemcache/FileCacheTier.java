@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * A {@link CacheTier} that stores each item in its own file in a local directory, using Java
+ * serialization. Files are named after a digest of the item's unique identifier, and are replaced
+ * atomically where the file system supports it.
+ * </p>
+ * <p>
+ * Any failure to read or write a file is reported as an {@link UncheckedIOException}.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class FileCacheTier<T extends Serializable> implements CacheTier<T> {
+    private static final String SUFFIX = ".item";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    /**
+     * Constructs a file cache tier that stores items in the provided directory, creating the directory
+     * if it does not exist.
+     * @param directory The directory in which to store items.
+     * @throws UncheckedIOException If the directory cannot be created.
+     */
+    public FileCacheTier(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<CachedItem<T>> get(Serializable id) {
+        Path file = this.file(id);
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (! Objects.equals(input.readObject(), id)) {
+                return Optional.empty();
+            }
+            @SuppressWarnings("unchecked")
+            T item = (T) input.readObject();
+            long created = input.readLong();
+            Long accessed = (Long) input.readObject();
+            Long modified = (Long) input.readObject();
+            long version = input.readLong();
+            return Optional.of(new CachedItem<>(item, created, accessed, modified, version));
+        }
+        catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (ClassNotFoundException e) {
+            throw new UncheckedIOException(new InvalidClassException(e.getMessage()));
+        }
+    }
+
+    @Override
+    public void put(Serializable id, CachedItem<T> item) {
+        Path file = this.file(id);
+        Path temporary;
+        try {
+            temporary = Files.createTempFile(this.directory, null, TEMPORARY_SUFFIX);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeObject(id);
+                output.writeObject(item.getItem());
+                output.writeLong(item.getCreated());
+                output.writeObject(item.getAccessed());
+                output.writeObject(item.getModified());
+                output.writeLong(item.getVersion());
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            try {
+                Files.deleteIfExists(temporary);
+            }
+            catch (IOException e) {
+                // The temporary file is left behind until the tier is next cleared.
+            }
+        }
+    }
+
+    @Override
+    public void remove(Serializable id) {
+        try {
+            Files.deleteIfExists(this.file(id));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean contains(Serializable id) {
+        return Files.exists(this.file(id));
+    }
+
+    @Override
+    public void clear() {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX) || file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(Serializable id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(id);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest(bytes.toByteArray())) {
+            name.append(String.format("%02x", b));
+        }
+        return this.directory.resolve(name.append(SUFFIX).toString());
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
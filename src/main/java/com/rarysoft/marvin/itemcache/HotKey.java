@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * An identifier that is frequently requested from a {@link Cache}, along with an estimate of how often it
+ * has recently been requested, as returned by the {@link Cache#topKeys(int)} method.
+ * </p>
+ */
+public class HotKey {
+    private final Serializable id;
+    private final long count;
+
+    HotKey(Serializable id, long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    /**
+     * Returns the unique identifier that is frequently requested.
+     * @return The unique identifier.
+     */
+    public Serializable getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the estimated number of recent requests for the identifier, whether or not the item was
+     * found. The estimate may exceed the actual number, but is never less than it, apart from the
+     * periodic halving of all counts that lets older requests fade.
+     * @return The estimated number of requests.
+     */
+    public long getCount() {
+        return this.count;
+    }
+}
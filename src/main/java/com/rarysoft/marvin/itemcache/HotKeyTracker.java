@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Tracks the most frequently requested identifiers, using a count-min sketch to estimate how often each
+ * identifier is requested, and a small set of candidates holding the identifiers with the highest
+ * estimates seen.
+ * </p>
+ * <p>
+ * The sketch uses a fixed amount of memory however many identifiers are requested. Its estimates can
+ * exceed the actual counts, when identifiers share counters, but never fall short of them. Once the
+ * number of requests recorded reaches ten times the width of the sketch, every count is halved, so that
+ * identifiers that were requested frequently in the past but no longer are eventually replaced. Requests
+ * are counted in a striped counter, so that counting them does not make all threads contend on a single
+ * counter. The width of the sketch is limited, so that a very large capacity does not make the sketch
+ * itself take a very large amount of memory.
+ * </p>
+ * <p>
+ * Recording is lossy under contention. A thread that finds another thread updating the candidates does
+ * not wait, and skips its update, since an identifier that is frequently requested will be recorded again
+ * shortly.
+ * </p>
+ */
+class HotKeyTracker {
+    private static final int DEPTH = 4;
+    private static final int MAX_WIDTH = 1 << 20;
+
+    private final AtomicLongArray counts;
+    private final int width;
+    private final int capacity;
+    private final long resetInterval;
+    private final LongAdder records;
+    private final Map<Serializable, Long> candidates;
+    private final ReentrantLock lock;
+
+    private volatile long threshold;
+    private volatile long nextAging;
+
+    HotKeyTracker(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Attempt to track fewer than one hot key");
+        }
+        this.width = (int) Math.min(Long.highestOneBit(Math.max(capacity, 64) * 32L - 1) << 1, MAX_WIDTH);
+        this.counts = new AtomicLongArray(DEPTH * this.width);
+        this.capacity = capacity;
+        this.resetInterval = this.width * 10L;
+        this.records = new LongAdder();
+        this.nextAging = this.resetInterval;
+        this.candidates = new ConcurrentHashMap<>();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Records a request for an identifier.
+     * @param id The unique identifier requested.
+     */
+    void record(Serializable id) {
+        long hash = Hashing.hash(id);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row ++) {
+            estimate = Math.min(estimate, this.counts.incrementAndGet(row * this.width + this.position(hash, row)));
+        }
+        if (this.candidates.replace(id, estimate) == null && estimate > this.threshold) {
+            this.offer(id, estimate);
+        }
+        this.records.increment();
+        if (this.records.sum() >= this.nextAging) {
+            this.age();
+        }
+    }
+
+    /**
+     * Returns the identifiers with the highest estimated counts, from highest to lowest.
+     * @param count The maximum number of identifiers to return.
+     * @return The most frequently requested identifiers.
+     */
+    List<HotKey> top(int count) {
+        return this.candidates.entrySet()
+                .stream()
+                .map(entry -> new HotKey(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(HotKey::getCount).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    private void offer(Serializable id, long estimate) {
+        if (! this.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (this.candidates.size() >= this.capacity) {
+                Map.Entry<Serializable, Long> coldest = this.coldest();
+                if (coldest.getValue() >= estimate) {
+                    this.threshold = coldest.getValue();
+                    return;
+                }
+                this.candidates.remove(coldest.getKey());
+            }
+            this.candidates.put(id, estimate);
+            if (this.candidates.size() >= this.capacity) {
+                this.threshold = this.coldest().getValue();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void age() {
+        this.lock.lock();
+        try {
+            if (this.records.sum() < this.nextAging) {
+                return;
+            }
+            this.nextAging += this.resetInterval;
+            for (int index = 0; index < this.counts.length(); index ++) {
+                this.counts.set(index, this.counts.get(index) >> 1);
+            }
+            this.candidates.replaceAll((id, count) -> count >> 1);
+            this.threshold >>= 1;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private Map.Entry<Serializable, Long> coldest() {
+        return this.candidates.entrySet().stream().min(Map.Entry.comparingByValue()).get();
+    }
+
+    private int position(long hash, int row) {
+        return ((int) hash + row * (int) (hash >>> 32)) & (this.width - 1);
+    }
+}
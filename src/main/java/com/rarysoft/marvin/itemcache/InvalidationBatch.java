@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A batch of item invalidations published by one node of a cluster to the others through an
+ * {@link InvalidationTransport}.
+ * </p>
+ * <p>
+ * Each invalidated item identifier is accompanied by a version stamp, which is the time at which the
+ * item was changed on the originating node.
+ * </p>
+ */
+public class InvalidationBatch {
+    private final String origin;
+    private final Map<Serializable, Long> versions;
+
+    public InvalidationBatch(String origin, Map<Serializable, Long> versions) {
+        this.origin = origin;
+        this.versions = Collections.unmodifiableMap(new LinkedHashMap<>(versions));
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Map<Serializable, Long> getVersions() {
+        return versions;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Keeps the caches on the nodes of a cluster consistent with each other by broadcasting the identifiers
+ * of the items added, updated and deleted through a {@link Cache} on one node to the caches on the
+ * other nodes, through an {@link InvalidationTransport}.
+ * </p>
+ * <p>
+ * Invalidations are coalesced per item and published in batches, once the configured batch size is
+ * reached and at the configured interval. Each invalidation carries a version stamp, which is the time
+ * at which the item was changed.
+ * </p>
+ * <p>
+ * On receiving a batch from another node, each invalidated item is either evicted from the cache or,
+ * if an {@link ItemLoader} is provided, reloaded from the remote repository. An item that was added or
+ * last modified in the local cache after the version stamp is kept, which assumes that the clocks of
+ * the nodes are reasonably well synchronized. Evicting an item from a fully populated cache leaves the
+ * cache in a not fully populated state, as does an invalidation of an item that a fully populated cache
+ * does not hold, since the item may have been added on the other node. Reloading keeps the cache fully
+ * populated, adding any item that was not yet cached and removing any item that no longer exists.
+ * Received invalidations are not broadcast again.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class InvalidationBus<T> implements AutoCloseable {
+    private static final Set<CacheEvent.Type> WRITES = EnumSet.of(CacheEvent.Type.ADDED, CacheEvent.Type.UPDATED, CacheEvent.Type.DELETED);
+
+    private final Cache<T> cache;
+    private final InvalidationTransport transport;
+    private final int batchSize;
+    private final ItemLoader<T> loader;
+    private final Executor executor;
+    private final String origin;
+    private final CacheListener<T> listener;
+    private final Consumer<InvalidationBatch> subscriber;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<Serializable, Long> pending;
+    private boolean closed;
+
+    /**
+     * <p>
+     * Constructs an invalidation bus that evicts items invalidated by other nodes from the provided
+     * cache.
+     * </p>
+     * @param cache The cache to keep consistent.
+     * @param transport The transport to use to exchange invalidations with other nodes.
+     * @param batchSize The number of pending invalidations at which to publish a batch.
+     * @param flushIntervalInMillis The number of milliseconds between publications of pending
+     *                              invalidations.
+     */
+    public InvalidationBus(Cache<T> cache, InvalidationTransport transport, int batchSize, long flushIntervalInMillis) {
+        this(cache, transport, batchSize, flushIntervalInMillis, null, null);
+    }
+
+    /**
+     * <p>
+     * Constructs an invalidation bus that reloads items invalidated by other nodes into the provided
+     * cache.
+     * </p>
+     * @param cache The cache to keep consistent.
+     * @param transport The transport to use to exchange invalidations with other nodes.
+     * @param batchSize The number of pending invalidations at which to publish a batch.
+     * @param flushIntervalInMillis The number of milliseconds between publications of pending
+     *                              invalidations.
+     * @param loader The loader to use to reload invalidated items from the remote repository.
+     * @param executor The executor on which to run reloads.
+     */
+    public InvalidationBus(Cache<T> cache, InvalidationTransport transport, int batchSize, long flushIntervalInMillis, ItemLoader<T> loader, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.cache = cache;
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.loader = loader;
+        this.executor = executor;
+        this.origin = UUID.randomUUID().toString();
+        this.pending = new LinkedHashMap<>();
+        this.listener = event -> {
+            if (WRITES.contains(event.getType())) {
+                this.enqueue(event.getId());
+            }
+        };
+        this.subscriber = this::received;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-cache-invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalInMillis, flushIntervalInMillis, TimeUnit.MILLISECONDS);
+        this.transport.subscribe(this.subscriber);
+        this.cache.addListener(this.listener);
+    }
+
+    /**
+     * <p>
+     * Publishes all pending invalidations immediately.
+     * </p>
+     * @throws RuntimeException Any exception thrown by the transport, in which case the invalidations
+     *                          are lost.
+     */
+    public void flush() {
+        Map<Serializable, Long> versions = this.takePending();
+        if (! versions.isEmpty()) {
+            this.transport.publish(new InvalidationBatch(this.origin, versions));
+        }
+    }
+
+    /**
+     * <p>
+     * Stops broadcasting and receiving invalidations, after publishing any pending invalidations.
+     * </p>
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        this.cache.removeListener(this.listener);
+        this.transport.unsubscribe(this.subscriber);
+        this.scheduler.shutdown();
+        this.flush();
+    }
+
+    private void enqueue(Serializable id) {
+        long version = this.cache.timestampGenerator().timestamp();
+        synchronized (this) {
+            this.pending.put(id, version);
+            if (this.pending.size() >= this.batchSize && ! this.closed) {
+                this.scheduler.execute(this::flushQuietly);
+            }
+        }
+    }
+
+    private synchronized Map<Serializable, Long> takePending() {
+        Map<Serializable, Long> versions = this.pending;
+        this.pending = new LinkedHashMap<>();
+        return versions;
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        }
+        catch (RuntimeException e) {
+            // Peers that miss an invalidation keep a stale item until it is next changed or evicted.
+        }
+    }
+
+    private void received(InvalidationBatch batch) {
+        if (this.origin.equals(batch.getOrigin())) {
+            return;
+        }
+        batch.getVersions().forEach((id, version) -> {
+            if (this.loader == null) {
+                this.cache.invalidate(id, version);
+            }
+            else {
+                this.executor.execute(() -> this.cache.reload(id, this.loader.load(id)));
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Carries batches of item invalidations between the nodes of a cluster on behalf of an
+ * {@link InvalidationBus}. A batch published by a node may or may not be delivered back to the same
+ * node, and delivery to other nodes need not be guaranteed.
+ * </p>
+ */
+public interface InvalidationTransport {
+    /**
+     * Sends a batch of invalidations to the other nodes of the cluster.
+     * @param batch The batch to send.
+     */
+    void publish(InvalidationBatch batch);
+
+    /**
+     * Registers a subscriber to be called with every batch received from the cluster.
+     * @param subscriber The subscriber to register.
+     */
+    void subscribe(Consumer<InvalidationBatch> subscriber);
+
+    /**
+     * Unregisters a subscriber previously registered using the
+     * {@link InvalidationTransport#subscribe(Consumer)} method.
+     * @param subscriber The subscriber to unregister.
+     */
+    void unsubscribe(Consumer<InvalidationBatch> subscriber);
+}
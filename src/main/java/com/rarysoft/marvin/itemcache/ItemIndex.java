@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * A secondary index over the items in a {@link Cache}, mapping keys extracted from the items to the
+ * unique identifiers of the items that have those keys.
+ * </p>
+ * <p>
+ * A unique index permits at most one item per key, and rejects an item whose key is already held by
+ * a different item.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+class ItemIndex<T> implements CacheIndex<T> {
+    private final Function<T, ?> keyExtractor;
+    private final boolean unique;
+    private final Map<Object, Set<Serializable>> ids;
+
+    ItemIndex(Function<T, ?> keyExtractor, boolean unique) {
+        this.keyExtractor = keyExtractor;
+        this.unique = unique;
+        this.ids = new HashMap<>();
+    }
+
+    boolean isUnique() {
+        return this.unique;
+    }
+
+    @Override
+    public void verify(Serializable id, CachedItem<T> item) {
+        if (! this.unique) {
+            return;
+        }
+        Set<Serializable> existing = this.ids.get(this.keyExtractor.apply(item.getItem()));
+        if (existing != null && ! existing.contains(id)) {
+            throw new IllegalStateException("Attempt to add an item with a duplicate key to a unique index");
+        }
+    }
+
+    @Override
+    public void add(Serializable id, CachedItem<T> item) {
+        this.ids.computeIfAbsent(this.keyExtractor.apply(item.getItem()), key -> new HashSet<>()).add(id);
+    }
+
+    @Override
+    public void remove(Serializable id, CachedItem<T> item) {
+        Object key = this.keyExtractor.apply(item.getItem());
+        Set<Serializable> existing = this.ids.get(key);
+        if (existing == null) {
+            return;
+        }
+        existing.remove(id);
+        if (existing.isEmpty()) {
+            this.ids.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.ids.clear();
+    }
+
+    Set<Serializable> ids(Object key) {
+        return this.ids.getOrDefault(key, Collections.emptySet());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Creates soft or weak references to cached items, and reports the items that the garbage collector
+ * has since cleared.
+ * </p>
+ * @param <T> The type of item referenced.
+ */
+class ItemReferences<T> {
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+    private final boolean soft;
+
+    ItemReferences(boolean soft) {
+        this.soft = soft;
+    }
+
+    /**
+     * Creates a reference to an item.
+     * @param id The unique identifier of the item.
+     * @param item The item to reference.
+     * @return A holder of the item that the garbage collector may clear.
+     */
+    ItemHolder<T> hold(Serializable id, T item) {
+        return this.soft ? new SoftItemReference<>(id, item, this.queue) : new WeakItemReference<>(id, item, this.queue);
+    }
+
+    /**
+     * Returns every reference that the garbage collector has cleared since the last call, along with
+     * the unique identifier of the item it referenced. Taking the cleared references needs no lock, so
+     * that callers only need to lock anything when a reference has actually been cleared.
+     * @return The cleared references, mapped to the unique identifiers of the items they referenced.
+     */
+    Map<ItemHolder<T>, Serializable> expunge() {
+        Reference<? extends T> reference = this.queue.poll();
+        if (reference == null) {
+            return Collections.emptyMap();
+        }
+        Map<ItemHolder<T>, Serializable> cleared = new IdentityHashMap<>();
+        for (; reference != null; reference = this.queue.poll()) {
+            @SuppressWarnings("unchecked")
+            ItemHolder<T> holder = (ItemHolder<T>) reference;
+            cleared.put(holder, ((IdentifiedReference) reference).id());
+        }
+        return cleared;
+    }
+
+    /**
+     * Clears a reference created by these references and reports it as cleared, exactly as the garbage
+     * collector does when it reclaims the referenced item.
+     * @param holder The reference to clear, which is ignored if it is not a reference.
+     */
+    void reclaim(ItemHolder<T> holder) {
+        if (holder instanceof Reference) {
+            Reference<?> reference = (Reference<?>) holder;
+            reference.clear();
+            reference.enqueue();
+        }
+    }
+
+    private interface IdentifiedReference {
+        Serializable id();
+    }
+
+    private static class SoftItemReference<T> extends SoftReference<T> implements ItemHolder<T>, IdentifiedReference {
+        private final Serializable id;
+
+        private SoftItemReference(Serializable id, T item, ReferenceQueue<T> queue) {
+            super(item, queue);
+            this.id = id;
+        }
+
+        @Override
+        public Serializable id() {
+            return this.id;
+        }
+    }
+
+    private static class WeakItemReference<T> extends WeakReference<T> implements ItemHolder<T>, IdentifiedReference {
+        private final Serializable id;
+
+        private WeakItemReference(Serializable id, T item, ReferenceQueue<T> queue) {
+            super(item, queue);
+            this.id = id;
+        }
+
+        @Override
+        public Serializable id() {
+            return this.id;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * A {@link CacheShard} backed by a {@link Cache} in the local JVM.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class LocalCacheShard<T> implements CacheShard<T> {
+    private final Cache<T> cache;
+
+    /**
+     * Constructs a shard backed by the provided cache.
+     * @param cache The cache holding the items of the shard.
+     */
+    public LocalCacheShard(Cache<T> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Stream<T> all() {
+        return this.cache.all().stream();
+    }
+
+    @Override
+    public void setAll(Collection<T> all) {
+        this.cache.setAll(all);
+    }
+
+    @Override
+    public boolean isFullyPopulated() {
+        return this.cache.isFullyPopulated();
+    }
+
+    @Override
+    public int size() {
+        return this.cache.size();
+    }
+
+    @Override
+    public boolean contains(Serializable id) {
+        return this.cache.contains(id);
+    }
+
+    @Override
+    public Optional<T> get(Serializable id) {
+        return this.cache.get(id);
+    }
+
+    @Override
+    public void add(T item) {
+        this.cache.add(item);
+    }
+
+    @Override
+    public void update(T item) {
+        this.cache.update(item);
+    }
+
+    @Override
+    public void delete(Serializable id) {
+        this.cache.delete(id);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * A service that publishes the statistics of a {@link Cache} to a metrics system, such as Micrometer or
+ * Prometheus, without the cache itself depending on that system.
+ * </p>
+ * <p>
+ * Implementations are discovered using {@link java.util.ServiceLoader}, by listing them in a
+ * <code>META-INF/services/com.rarysoft.marvin.itemcache.MetricsBinder</code> resource, and are called by
+ * the {@link CacheMetrics#bind(Cache, String)} method. An implementation would typically register a gauge
+ * or function counter for each statistic, reading it from the provided supplier whenever the metrics are
+ * collected.
+ * </p>
+ */
+public interface MetricsBinder {
+    /**
+     * Publishes the statistics of a cache.
+     * @param cacheName The name under which to publish the statistics.
+     * @param stats A supplier of a fresh snapshot of the statistics of the cache.
+     */
+    void bind(String cacheName, Supplier<CacheStats> stats);
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * An index over the items in a {@link Cache} that keeps the unique identifiers of the items sorted by
+ * a comparable key extracted from the cached items.
+ * </p>
+ * <p>
+ * Items with equal keys are ordered by when they were last stored in the index, which gives every
+ * item a distinct position that can be used as a paging cursor.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ * @param <K> The type of the indexed key.
+ */
+class OrderedItemIndex<T, K extends Comparable<? super K>> implements CacheIndex<T> {
+    private final Function<CachedItem<T>, K> keyExtractor;
+    private final NavigableMap<IndexCursor, Serializable> ids;
+    private final Map<Serializable, IndexCursor> positions;
+
+    private long sequence;
+
+    OrderedItemIndex(Function<CachedItem<T>, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.ids = new TreeMap<>(Comparator
+                .comparing((IndexCursor cursor) -> this.<K>key(cursor), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingLong(IndexCursor::getSequence));
+        this.positions = new HashMap<>();
+        this.sequence = 0;
+    }
+
+    @Override
+    public void verify(Serializable id, CachedItem<T> item) {
+    }
+
+    @Override
+    public void add(Serializable id, CachedItem<T> item) {
+        IndexCursor position = new IndexCursor(this.keyExtractor.apply(item), this.sequence ++);
+        this.ids.put(position, id);
+        this.positions.put(id, position);
+    }
+
+    @Override
+    public void remove(Serializable id, CachedItem<T> item) {
+        IndexCursor position = this.positions.remove(id);
+        if (position != null) {
+            this.ids.remove(position);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.ids.clear();
+        this.positions.clear();
+    }
+
+    Stream<Serializable> range(K from, K to) {
+        return this.ids
+                .subMap(new IndexCursor(from, Long.MIN_VALUE), true, new IndexCursor(to, Long.MIN_VALUE), false)
+                .values()
+                .stream();
+    }
+
+    Stream<Map.Entry<IndexCursor, Serializable>> after(IndexCursor cursor) {
+        return (cursor == null ? this.ids : this.ids.tailMap(cursor, false)).entrySet().stream();
+    }
+
+    boolean hasAfter(IndexCursor cursor) {
+        return this.ids.higherKey(cursor) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C> C key(IndexCursor cursor) {
+        return (C) cursor.getKey();
+    }
+}
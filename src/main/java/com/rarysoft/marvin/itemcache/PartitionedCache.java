@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * Represents a cache of items partitioned across several {@link CacheShard}s, which may be local or on
+ * other nodes. Item identifiers are mapped onto the shards using a consistent hash ring, so that
+ * adding or removing a shard only moves the identifiers belonging to that shard.
+ * </p>
+ * <p>
+ * Operations on individual items are routed to the shard that owns the item, and have the same
+ * contract as the corresponding {@link Cache} methods. The partitioned cache is fully populated only
+ * while every shard is fully populated. Getting all items gathers them from every shard as a stream,
+ * so that the items of one shard are only requested once the items of the previous shard have been
+ * consumed.
+ * </p>
+ * <p>
+ * Adding or removing a shard does not move any items. Items cached by a shard that no longer owns them
+ * are not found until they are added to their new owner, so the cache should be repopulated, using the
+ * {@link PartitionedCache#setAll(Collection)} method, after changing the shards.
+ * </p>
+ * @param <T> The type of item to store in the cache.
+ */
+public class PartitionedCache<T> {
+    private final Function<T, Serializable> idExtractor;
+
+    private volatile ConsistentHashRing<CacheShard<T>> ring;
+
+    /**
+     * <p>
+     * Constructs a partitioned cache with no shards, using the provided expression to uniquely identify
+     * items. At least one shard must be added before the cache can be used.
+     * </p>
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param pointsPerShard The number of points at which to place each shard on the hash ring. More
+     *                       points spread items more evenly between shards.
+     */
+    public PartitionedCache(Function<T, Serializable> idExtractor, int pointsPerShard) {
+        this.idExtractor = idExtractor;
+        this.ring = new ConsistentHashRing<>(pointsPerShard);
+    }
+
+    /**
+     * Adds a shard to the cache.
+     * @param name The unique name of the shard, which determines its placement on the hash ring.
+     * @param shard The shard to add.
+     * @throws IllegalArgumentException If a shard with the same name has already been added.
+     */
+    public synchronized void addShard(String name, CacheShard<T> shard) {
+        this.ring = this.ring.withNode(name, shard);
+    }
+
+    /**
+     * Removes a shard from the cache.
+     * @param name The name of the shard to remove.
+     * @throws IllegalArgumentException If no shard with the provided name has been added.
+     */
+    public synchronized void removeShard(String name) {
+        this.ring = this.ring.withoutNode(name);
+    }
+
+    /**
+     * <p>
+     * Returns a stream of the items in every shard, which represents all items in the remote
+     * repository. See {@link Cache#all()}.
+     * </p>
+     * @return A stream of all items.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public Stream<T> all() {
+        Collection<CacheShard<T>> shards = this.ring.nodes();
+        if (! this.fullyPopulated(shards)) {
+            throw new IllegalStateException("Attempt to retrieve all from a partial cache");
+        }
+        return shards.stream().flatMap(CacheShard::all);
+    }
+
+    /**
+     * <p>
+     * Stores a complete collection of items in the cache, giving each shard the items that it owns.
+     * See {@link Cache#setAll(Collection)}.
+     * </p>
+     * @param all A collection of items to store in the cache that represents all items in the remote
+     *            repository.
+     */
+    public void setAll(Collection<T> all) {
+        ConsistentHashRing<CacheShard<T>> ring = this.ring;
+        Map<CacheShard<T>, List<T>> items = all.stream().collect(Collectors.groupingBy(item -> ring.nodeFor(this.idExtractor.apply(item))));
+        ring.nodes().forEach(shard -> shard.setAll(items.getOrDefault(shard, Collections.emptyList())));
+    }
+
+    /**
+     * Indicates whether or not every shard is fully populated. See {@link Cache#isFullyPopulated()}. A
+     * cache with no shards holds no items, so it is never fully populated.
+     * @return An indication of whether or not the cache is fully populated.
+     */
+    public boolean isFullyPopulated() {
+        return this.fullyPopulated(this.ring.nodes());
+    }
+
+    /**
+     * Indicates the number of items in the remote repository. See {@link Cache#size()}.
+     * @return The number of items in the remote repository.
+     * @throws IllegalStateException If the cache is not fully populated.
+     */
+    public int size() {
+        Collection<CacheShard<T>> shards = this.ring.nodes();
+        if (! this.fullyPopulated(shards)) {
+            throw new IllegalStateException("Attempt to get size of a partial cache");
+        }
+        return shards.stream().mapToInt(CacheShard::size).sum();
+    }
+
+    /**
+     * See {@link Cache#contains(Serializable)}.
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An indication of whether or not the owning shard contains the requested item.
+     */
+    public boolean contains(Serializable id) {
+        return this.shard(id).contains(id);
+    }
+
+    /**
+     * See {@link Cache#get(Serializable)}.
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An {@link Optional} that either contains the item, if it exists in the owning shard, or
+     *         is empty if the item does not exist in the owning shard.
+     */
+    public Optional<T> get(Serializable id) {
+        return this.shard(id).get(id);
+    }
+
+    /**
+     * See {@link Cache#add(Object)}.
+     * @param item The item to add to the cache.
+     */
+    public void add(T item) {
+        this.shard(this.idExtractor.apply(item)).add(item);
+    }
+
+    /**
+     * See {@link Cache#update(Object)}.
+     * @param item The item to update.
+     * @throws IllegalStateException If the owning shard is fully populated but the item to update is
+     *                               not found in it.
+     */
+    public void update(T item) {
+        this.shard(this.idExtractor.apply(item)).update(item);
+    }
+
+    /**
+     * See {@link Cache#delete(Serializable)}.
+     * @param id The unique identifier of the item to delete.
+     * @throws IllegalStateException If the owning shard is fully populated but the item to delete is
+     *                               not found in it.
+     */
+    public void delete(Serializable id) {
+        this.shard(id).delete(id);
+    }
+
+    private boolean fullyPopulated(Collection<CacheShard<T>> shards) {
+        return ! shards.isEmpty() && shards.stream().allMatch(CacheShard::isFullyPopulated);
+    }
+
+    private CacheShard<T> shard(Serializable id) {
+        return this.ring.nodeFor(id);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * A {@link Cache} built by a {@link CacheBuilder} without any of the optional features that affect
+ * retrieving or storing individual items. Its {@link Cache#get(Serializable)} and
+ * {@link Cache#add(Object)} methods skip the checks for those features altogether, rather than finding
+ * each one disabled.
+ * </p>
+ * <p>
+ * Since those methods rely on the features staying disabled, enabling any of them later, or registering
+ * an index, throws an {@link IllegalStateException}.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+class PlainCache<T> extends Cache<T> {
+    PlainCache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor) {
+        super(timestampGenerator, idExtractor);
+    }
+
+    @Override
+    public Optional<T> get(Serializable id) {
+        return this.plainGet(id);
+    }
+
+    @Override
+    public void add(T item) {
+        this.plainAdd(item);
+    }
+
+    @Override
+    boolean acceptsFeatures() {
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * The reasons for which an item can be removed from a {@link Cache}, as reported to a
+ * {@link RemovalListener}.
+ * </p>
+ */
+public enum RemovalCause {
+    /**
+     * The item was deleted, either through the {@link Cache#delete(Serializable)} method or because the
+     * remote repository reported that it no longer exists.
+     */
+    EXPLICIT,
+
+    /**
+     * The item was replaced by a newer version of the same item.
+     */
+    REPLACED,
+
+    /**
+     * The item was evicted because it was created too long ago. See {@link Cache#evict(long)}.
+     */
+    EXPIRED_CREATED,
+
+    /**
+     * The item was evicted because it was not accessed recently enough. See
+     * {@link Cache#evictUnaccessed(long)}.
+     */
+    EXPIRED_ACCESSED,
+
+    /**
+     * The item was evicted because it was not modified recently enough. See
+     * {@link Cache#evictUnmodified(long)}, and {@link CacheBuilder#expireAfterWrite(long, long,
+     * java.util.concurrent.ScheduledExecutorService)}, which also counts the time the item was added.
+     */
+    EXPIRED_MODIFIED,
+
+    /**
+     * The item was evicted to keep the total weight of the cache within its limit. See
+     * {@link Cache#enableWeightLimit(long, Weigher)}.
+     */
+    SIZE,
+
+    /**
+     * The item was reclaimed by the garbage collector. See {@link Cache#enableSoftValues()}.
+     */
+    COLLECTED,
+
+    /**
+     * The item was evicted because another node in a cluster reported that it changed. See
+     * {@link InvalidationBus}.
+     */
+    INVALIDATED,
+
+    /**
+     * All items were removed at once, through the {@link Cache#evictAll()} method or because the cache
+     * was repopulated.
+     */
+    RESET;
+
+    /**
+     * Indicates whether or not the item was evicted by the cache, rather than deleted, replaced or
+     * reset at the request of the code using the cache.
+     * @return An indication of whether or not the item was evicted.
+     */
+    public boolean wasEvicted() {
+        return this != EXPLICIT && this != REPLACED && this != RESET;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Queues the items removed from a {@link Cache} for a single {@link RemovalListener}, and delivers them
+ * in batches on an executor, so that removing items never waits for the listener.
+ * </p>
+ * <p>
+ * At most one delivery task is scheduled at a time. Each delivery passes every removal queued since the
+ * previous delivery, so removals made in quick succession, such as by a single eviction, are delivered
+ * together. Exceptions thrown by the listener are ignored.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+class RemovalDispatcher<T> {
+    private final RemovalListener<T> listener;
+    private final Executor executor;
+    private final ReentrantLock lock;
+
+    private List<RemovalNotification<T>> pending;
+    private boolean scheduled;
+
+    RemovalDispatcher(RemovalListener<T> listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+        this.lock = new ReentrantLock();
+        this.pending = new ArrayList<>();
+    }
+
+    RemovalListener<T> listener() {
+        return this.listener;
+    }
+
+    void removed(RemovalNotification<T> removal) {
+        this.lock.lock();
+        try {
+            this.pending.add(removal);
+            if (this.scheduled) {
+                return;
+            }
+            this.scheduled = true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+        try {
+            this.executor.execute(this::deliver);
+        }
+        catch (RuntimeException e) {
+            this.lock.lock();
+            try {
+                this.scheduled = false;
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private void deliver() {
+        while (true) {
+            List<RemovalNotification<T>> removals;
+            this.lock.lock();
+            try {
+                if (this.pending.isEmpty()) {
+                    this.scheduled = false;
+                    return;
+                }
+                removals = this.pending;
+                this.pending = new ArrayList<>();
+            }
+            finally {
+                this.lock.unlock();
+            }
+            try {
+                this.listener.removed(removals);
+            }
+            catch (RuntimeException e) {
+                // A failing listener must not prevent later removals from being delivered
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * <p>
+ * Describes an item removed from a {@link Cache}, as reported to a {@link RemovalListener}.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class RemovalNotification<T> {
+    private final Serializable id;
+    private final CachedItem<T> item;
+    private final RemovalCause cause;
+
+    RemovalNotification(Serializable id, CachedItem<T> item, RemovalCause cause) {
+        this.id = id;
+        this.item = item;
+        this.cause = cause;
+    }
+
+    /**
+     * @return The unique identifier of the removed item.
+     */
+    public Serializable getId() {
+        return id;
+    }
+
+    /**
+     * @return The removed item, or an empty result if the item was reclaimed by the garbage collector.
+     */
+    public Optional<T> getItem() {
+        return Optional.ofNullable(item.getItem());
+    }
+
+    /**
+     * @return The reason the item was removed.
+     */
+    public RemovalCause getCause() {
+        return cause;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * Represents a local cache of items split into shards, each of which is a separate {@link Cache} with
+ * its own lock and its own fully populated state. Item identifiers are assigned to shards either by
+ * hash, across a fixed number of shards, or by a partition function, such as one that returns the
+ * tenant of an item, in which case a shard is created for each distinct partition as it is needed.
+ * </p>
+ * <p>
+ * Operations on individual items are routed to the shard that owns the item, and have the same
+ * contract as the corresponding {@link Cache} methods. In particular, a failed update or delete
+ * causes only the owning shard to revert to a not fully populated state, and only that shard then
+ * needs to be repopulated, using the {@link ShardedCache#setAll(Object, Collection)} method. The
+ * sharded cache as a whole is fully populated once it has been populated using the
+ * {@link ShardedCache#setAll(Collection)} method, and only while every shard is fully populated.
+ * </p>
+ * @param <T> The type of item to store in the cache.
+ */
+public class ShardedCache<T> {
+    private final TimestampGenerator timestampGenerator;
+
+    private final Function<T, Serializable> idExtractor;
+
+    private final Function<Serializable, ?> partitioner;
+
+    private final Map<Object, Cache<T>> shards;
+
+    private volatile boolean fullyPopulated;
+
+    /**
+     * <p>
+     * Constructs a sharded cache of items of type T, using the provided expression to uniquely identify
+     * items and assigning items to shards by the hash of their unique identifier. The partition of
+     * each shard is its number, starting from zero.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the default {@link SystemTimestampGenerator}.
+     * </p>
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param shardCount The number of shards.
+     * @throws IllegalArgumentException If the number of shards is not positive.
+     */
+    public ShardedCache(Function<T, Serializable> idExtractor, int shardCount) {
+        this(new SystemTimestampGenerator(), idExtractor, shardCount);
+    }
+
+    /**
+     * <p>
+     * Constructs a sharded cache of items of type T, using the provided expression to uniquely identify
+     * items and assigning items to shards by the hash of their unique identifier. The partition of
+     * each shard is its number, starting from zero.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the provided {@link TimestampGenerator}.
+     * </p>
+     * @param timestampGenerator The timestamp generator to use to generate timestamps internally.
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param shardCount The number of shards.
+     * @throws IllegalArgumentException If the number of shards is not positive.
+     */
+    public ShardedCache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor, int shardCount) {
+        this(timestampGenerator, idExtractor, hashPartitioner(shardCount));
+    }
+
+    /**
+     * <p>
+     * Constructs a sharded cache of items of type T, using the provided expression to uniquely identify
+     * items and the provided partition function to assign items to shards by their unique identifier.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the default {@link SystemTimestampGenerator}.
+     * </p>
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param partitioner The expression to use to determine the partition of a particular unique
+     *                    identifier. Partitions must have a consistent equals and hashCode.
+     */
+    public ShardedCache(Function<T, Serializable> idExtractor, Function<Serializable, ?> partitioner) {
+        this(new SystemTimestampGenerator(), idExtractor, partitioner);
+    }
+
+    /**
+     * <p>
+     * Constructs a sharded cache of items of type T, using the provided expression to uniquely identify
+     * items and the provided partition function to assign items to shards by their unique identifier.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the provided {@link TimestampGenerator}.
+     * </p>
+     * @param timestampGenerator The timestamp generator to use to generate timestamps internally.
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param partitioner The expression to use to determine the partition of a particular unique
+     *                    identifier. Partitions must have a consistent equals and hashCode.
+     */
+    public ShardedCache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor, Function<Serializable, ?> partitioner) {
+        this.timestampGenerator = timestampGenerator;
+        this.idExtractor = idExtractor;
+        this.partitioner = partitioner;
+        this.shards = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the partition that owns the item with the provided unique identifier.
+     * @param id The unique identifier of an item.
+     * @return The partition that owns the item.
+     */
+    public Object partitionOf(Serializable id) {
+        return this.partitioner.apply(id);
+    }
+
+    /**
+     * <p>
+     * Returns all items in every shard, which represents all items in the remote repository. See
+     * {@link Cache#all()}.
+     * </p>
+     * @return A collection of all items.
+     * @throws IllegalStateException If any shard is not fully populated.
+     */
+    public Collection<T> all() {
+        if (! this.isFullyPopulated()) {
+            throw new IllegalStateException("Attempt to retrieve all from a partial cache");
+        }
+        List<T> all = new ArrayList<>();
+        this.shards.values().forEach(shard -> all.addAll(shard.all()));
+        return all;
+    }
+
+    /**
+     * <p>
+     * Returns all items in the shard for the provided partition, which represents all items of that
+     * partition in the remote repository. See {@link Cache#all()}.
+     * </p>
+     * @param partition The partition of the items to return.
+     * @return A collection of all items of the partition.
+     * @throws IllegalStateException If the shard for the partition is not fully populated.
+     */
+    public Collection<T> all(Object partition) {
+        Cache<T> shard = this.shards.get(partition);
+        if (shard == null) {
+            if (! this.fullyPopulated) {
+                throw new IllegalStateException("Attempt to retrieve all from a partial cache");
+            }
+            return Collections.emptyList();
+        }
+        return shard.all();
+    }
+
+    /**
+     * <p>
+     * Stores a complete collection of items in the cache, giving each shard the items of its
+     * partition. Every shard becomes fully populated, including those for partitions that are
+     * created later. See {@link Cache#setAll(Collection)}.
+     * </p>
+     * @param all A collection of items to store in the cache that represents all items in the remote
+     *            repository.
+     */
+    public void setAll(Collection<T> all) {
+        Map<Object, List<T>> items = all.stream().collect(Collectors.groupingBy(item -> this.partitioner.apply(this.idExtractor.apply(item))));
+        this.fullyPopulated = true;
+        items.forEach((partition, partitionItems) -> this.shard(partition).setAll(partitionItems));
+        this.shards.forEach((partition, shard) -> {
+            if (! items.containsKey(partition)) {
+                shard.setAll(Collections.emptyList());
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Stores a complete collection of the items of one partition in the shard for that partition,
+     * leaving the other shards unchanged. See {@link Cache#setAll(Collection)}.
+     * </p>
+     * @param partition The partition of the items.
+     * @param all A collection of items to store in the shard that represents all items of the
+     *            partition in the remote repository.
+     * @throws IllegalArgumentException If any of the items do not belong to the partition.
+     */
+    public void setAll(Object partition, Collection<T> all) {
+        all.forEach(item -> {
+            if (! Objects.equals(partition, this.partitioner.apply(this.idExtractor.apply(item)))) {
+                throw new IllegalArgumentException("Attempt to populate a shard with an item of another partition");
+            }
+        });
+        this.shard(partition).setAll(all);
+    }
+
+    /**
+     * Indicates whether or not the cache has been populated with all items and every shard is fully
+     * populated. See {@link Cache#isFullyPopulated()}.
+     * @return An indication of whether or not the cache is fully populated.
+     */
+    public boolean isFullyPopulated() {
+        return this.fullyPopulated && this.shards.values().stream().allMatch(Cache::isFullyPopulated);
+    }
+
+    /**
+     * Indicates whether or not the shard for the provided partition is fully populated. See
+     * {@link Cache#isFullyPopulated()}.
+     * @param partition The partition of the shard.
+     * @return An indication of whether or not the shard is fully populated.
+     */
+    public boolean isFullyPopulated(Object partition) {
+        Cache<T> shard = this.shards.get(partition);
+        return shard == null ? this.fullyPopulated : shard.isFullyPopulated();
+    }
+
+    /**
+     * Indicates the number of items in the remote repository. See {@link Cache#size()}.
+     * @return The number of items in the remote repository.
+     * @throws IllegalStateException If any shard is not fully populated.
+     */
+    public int size() {
+        if (! this.isFullyPopulated()) {
+            throw new IllegalStateException("Attempt to get size of a partial cache");
+        }
+        return this.shards.values().stream().mapToInt(Cache::size).sum();
+    }
+
+    /**
+     * See {@link Cache#contains(Serializable)}.
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An indication of whether or not the owning shard contains the requested item.
+     */
+    public boolean contains(Serializable id) {
+        Cache<T> shard = this.shards.get(this.partitioner.apply(id));
+        return shard != null && shard.contains(id);
+    }
+
+    /**
+     * See {@link Cache#get(Serializable)}.
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An {@link Optional} that either contains the item, if it exists in the owning shard, or
+     *         is empty if the item does not exist in the owning shard.
+     */
+    public Optional<T> get(Serializable id) {
+        Cache<T> shard = this.shards.get(this.partitioner.apply(id));
+        return shard == null ? Optional.empty() : shard.get(id);
+    }
+
+    /**
+     * See {@link Cache#add(Object)}.
+     * @param item The item to add to the cache.
+     */
+    public void add(T item) {
+        this.shard(this.partitioner.apply(this.idExtractor.apply(item))).add(item);
+    }
+
+    /**
+     * See {@link Cache#update(Object)}.
+     * @param item The item to update.
+     * @throws IllegalStateException If the owning shard is fully populated but the item to update is
+     *                               not found in it.
+     */
+    public void update(T item) {
+        this.shard(this.partitioner.apply(this.idExtractor.apply(item))).update(item);
+    }
+
+    /**
+     * See {@link Cache#delete(Serializable)}.
+     * @param id The unique identifier of the item to delete.
+     * @throws IllegalStateException If the owning shard is fully populated but the item to delete is
+     *                               not found in it.
+     */
+    public void delete(Serializable id) {
+        this.shard(this.partitioner.apply(id)).delete(id);
+    }
+
+    /**
+     * <p>
+     * Evicts all items from every shard. See {@link Cache#evictAll()}.
+     * </p>
+     * <p>
+     * The cache will be left in a not fully populated state.
+     * </p>
+     */
+    public void evictAll() {
+        this.fullyPopulated = false;
+        this.shards.values().forEach(Cache::evictAll);
+    }
+
+    /**
+     * <p>
+     * Evicts all items from the shard for the provided partition. See {@link Cache#evictAll()}.
+     * </p>
+     * <p>
+     * The shard will be left in a not fully populated state.
+     * </p>
+     * @param partition The partition of the shard.
+     */
+    public void evictAll(Object partition) {
+        Cache<T> shard = this.shards.get(partition);
+        if (shard != null) {
+            shard.evictAll();
+        }
+    }
+
+    private Cache<T> shard(Object partition) {
+        return this.shards.computeIfAbsent(partition, key -> this.fullyPopulated
+                ? new Cache<>(this.timestampGenerator, this.idExtractor, Collections.emptyList())
+                : new Cache<>(this.timestampGenerator, this.idExtractor));
+    }
+
+    private static Function<Serializable, ?> hashPartitioner(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Attempt to create a sharded cache without shards");
+        }
+        return id -> (int) Math.floorMod(Hashing.hash(id), (long) shardCount);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A {@link Weigher} that estimates the number of bytes of heap retained by an item, by walking the
+ * graph of objects reachable from the item using reflection.
+ * </p>
+ * <p>
+ * The estimate assumes a 64 bit JVM with compressed object pointers, and counts each object reachable
+ * from the item once, including objects shared with other items. Classes and enum constants are not
+ * counted, since they are shared by the whole application. The contents of objects whose fields cannot
+ * be made accessible, such as many JDK internals on Java 9 and later, are not counted, other than
+ * strings, whose size is estimated from their length, and collections and maps, whose elements are
+ * counted along with an estimate of the storage needed to hold them.
+ * </p>
+ * <p>
+ * Walking the object graph is comparatively expensive, so this weigher is best suited to caches of
+ * items that are not updated frequently.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class SizeEstimatingWeigher<T> implements Weigher<T> {
+    private static final int OBJECT_HEADER_SIZE = 12;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int ALIGNMENT = 8;
+    private static final int MAP_ENTRY_SIZE = 32;
+
+    private final Map<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+    @Override
+    public long weigh(T item) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        long size = 0;
+        if (item != null) {
+            pending.push(item);
+        }
+        while (! pending.isEmpty()) {
+            Object object = pending.pop();
+            if (object instanceof Class || object instanceof Enum || ! visited.add(object)) {
+                continue;
+            }
+            size += this.sizeOf(object, pending);
+        }
+        return size;
+    }
+
+    private long sizeOf(Object object, Deque<Object> pending) {
+        Class<?> type = object.getClass();
+        if (object instanceof String) {
+            return align(OBJECT_HEADER_SIZE + 12) + align(ARRAY_HEADER_SIZE + 2L * ((String) object).length());
+        }
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            Class<?> componentType = type.getComponentType();
+            if (! componentType.isPrimitive()) {
+                for (Object element : (Object[]) object) {
+                    if (element != null) {
+                        pending.push(element);
+                    }
+                }
+            }
+            return align(ARRAY_HEADER_SIZE + (long) length * fieldSize(componentType));
+        }
+        Layout layout = this.layouts.computeIfAbsent(type, Layout::new);
+        if (layout.opaque && object instanceof Collection) {
+            Collection<?> collection = (Collection<?>) object;
+            collection.forEach(element -> {
+                if (element != null) {
+                    pending.push(element);
+                }
+            });
+            return layout.size + align(ARRAY_HEADER_SIZE + (long) collection.size() * REFERENCE_SIZE);
+        }
+        if (layout.opaque && object instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            map.forEach((key, value) -> {
+                if (key != null) {
+                    pending.push(key);
+                }
+                if (value != null) {
+                    pending.push(value);
+                }
+            });
+            return layout.size + align(ARRAY_HEADER_SIZE + (long) map.size() * REFERENCE_SIZE) + (long) map.size() * MAP_ENTRY_SIZE;
+        }
+        for (Field field : layout.references) {
+            try {
+                Object value = field.get(object);
+                if (value != null) {
+                    pending.push(value);
+                }
+            }
+            catch (IllegalAccessException e) {
+                // The field could not be made accessible, so its contents are not counted
+            }
+        }
+        return layout.size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_SIZE;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static class Layout {
+        private final long size;
+        private final List<Field> references;
+        private final boolean opaque;
+
+        private Layout(Class<?> type) {
+            long size = OBJECT_HEADER_SIZE;
+            List<Field> references = new ArrayList<>();
+            boolean opaque = false;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    size += fieldSize(field.getType());
+                    if (field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    if (accessible(field)) {
+                        references.add(field);
+                    }
+                    else {
+                        opaque = true;
+                    }
+                }
+            }
+            this.size = align(size);
+            this.references = references;
+            this.opaque = opaque;
+        }
+
+        private static boolean accessible(Field field) {
+            try {
+                field.setAccessible(true);
+                return true;
+            }
+            catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+}
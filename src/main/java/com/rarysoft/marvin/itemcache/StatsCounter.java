@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Accumulates the statistics of a {@link Cache}. Each statistic is held in a {@link LongAdder}, so that
+ * threads recording at the same time do not contend with each other.
+ * </p>
+ */
+class StatsCounter {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder getNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    void recordGet(boolean hit, long nanos) {
+        (hit ? this.hits : this.misses).increment();
+        this.getNanos.add(nanos);
+    }
+
+    void recordEviction() {
+        this.evictions.increment();
+    }
+
+    void recordWait() {
+        this.waits.increment();
+    }
+
+    void recordTimeout() {
+        this.timeouts.increment();
+    }
+
+    CacheStats snapshot(boolean fullyPopulated, int fullItemCount, int partialItemCount) {
+        return new CacheStats(fullyPopulated, fullItemCount, partialItemCount, this.hits.sum(), this.misses.sum(), this.getNanos.sum(), this.evictions.sum(), this.waits.sum(), this.timeouts.sum());
+    }
+}
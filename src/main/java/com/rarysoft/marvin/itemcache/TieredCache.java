@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Represents a cache of items in two tiers: a small in-memory {@link Cache} of the most recently used
+ * items, in front of a larger, slower {@link CacheTier}.
+ * </p>
+ * <p>
+ * Items are added to the in-memory tier. When the in-memory tier holds more than its capacity, the
+ * least recently used items are moved to the slower tier. When an item is retrieved from the slower
+ * tier, it is moved back into the in-memory tier. Items keep their cache meta-data as they move
+ * between tiers, so that they are evicted and refreshed as if they had stayed in a single tier.
+ * </p>
+ * <p>
+ * A tiered cache is never a complete replica of the remote repository, and behaves as a
+ * {@link Cache} in a not fully populated state: a failure to find an item only means that the item is
+ * not cached in either tier.
+ * </p>
+ * <p>
+ * Each operation holds a {@link ReentrantLock} rather than an object monitor while it reads or writes
+ * the slower tier, so that virtual threads waiting for the lock, or blocked on the slower tier's I/O,
+ * do not pin their carrier threads on Java 21 and later.
+ * </p>
+ * @param <T> The type of item to store in the cache.
+ */
+public class TieredCache<T> {
+    private final Cache<T> near;
+    private final CacheTier<T> far;
+    private final int nearCapacity;
+    private final LinkedHashMap<Serializable, Boolean> nearIds;
+    private final ReentrantLock lock;
+
+    /**
+     * <p>
+     * Constructs a tiered cache of items of type T, using the provided expression to uniquely identify
+     * items.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the default {@link SystemTimestampGenerator}.
+     * </p>
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param far The slower tier in which to store items that do not fit in the in-memory tier.
+     * @param nearCapacity The number of items to keep in the in-memory tier.
+     */
+    public TieredCache(Function<T, Serializable> idExtractor, CacheTier<T> far, int nearCapacity) {
+        this(new SystemTimestampGenerator(), idExtractor, far, nearCapacity);
+    }
+
+    /**
+     * <p>
+     * Constructs a tiered cache of items of type T, using the provided expression to uniquely identify
+     * items.
+     * </p>
+     * <p>
+     * Timestamps will be generated internally using the provided {@link TimestampGenerator}.
+     * </p>
+     * @param timestampGenerator The timestamp generator to use to generate timestamps internally.
+     * @param idExtractor The expression to use to uniquely identify a particular item.
+     * @param far The slower tier in which to store items that do not fit in the in-memory tier.
+     * @param nearCapacity The number of items to keep in the in-memory tier.
+     */
+    public TieredCache(TimestampGenerator timestampGenerator, Function<T, Serializable> idExtractor, CacheTier<T> far, int nearCapacity) {
+        if (nearCapacity <= 0) {
+            throw new IllegalArgumentException("Near capacity must be positive");
+        }
+        this.near = new Cache<>(timestampGenerator, idExtractor);
+        this.far = far;
+        this.nearCapacity = nearCapacity;
+        this.nearIds = new LinkedHashMap<>(16, 0.75f, true);
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * <p>
+     * Indicates whether or not either tier contains an item identified by the provided identifier.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An indication of whether or not the cache contains the requested item.
+     */
+    public boolean contains(Serializable id) {
+        this.lock.lock();
+        try {
+            return this.near.contains(id) || this.far.contains(id);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Gets an item uniquely identified by the provided identifier from either tier, if such an item
+     * exists in the cache. An item found in the slower tier is moved into the in-memory tier.
+     * </p>
+     * <p>
+     * If the item is found in the cache, it will be marked internally with an accessed timestamp.
+     * </p>
+     * @param id The unique identifier to use to locate the requested item.
+     * @return An {@link Optional} that either contains the item, if it exists in the cache, or is
+     *         empty if the item does not exist in the cache.
+     */
+    public Optional<T> get(Serializable id) {
+        this.lock.lock();
+        try {
+            Optional<T> item = this.near.get(id);
+            if (item.isPresent()) {
+                this.nearIds.get(id);
+                return item;
+            }
+            Optional<CachedItem<T>> farItem = this.far.get(id);
+            farItem.ifPresent(cachedItem -> this.promote(id, cachedItem.accessed(this.near.timestampGenerator().timestamp())));
+            return farItem.map(CachedItem::getItem);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Adds an item to the in-memory tier, replacing any copy of it in the slower tier.
+     * </p>
+     * @param item The item to add to the cache.
+     */
+    public void add(T item) {
+        this.lock.lock();
+        try {
+            Serializable id = this.near.id(item);
+            this.far.remove(id);
+            this.near.add(item);
+            this.nearIds.put(id, true);
+            this.demoteOverflow();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Updates a previously cached item, and sets its modified timestamp. An item found in the slower
+     * tier is moved into the in-memory tier. If the item is not found in either tier, it is simply
+     * added to the cache.
+     * </p>
+     * @param item The item to update.
+     */
+    public void update(T item) {
+        this.lock.lock();
+        try {
+            Serializable id = this.near.id(item);
+            if (! this.near.contains(id)) {
+                this.far.get(id).ifPresent(cachedItem -> this.promote(id, cachedItem));
+            }
+            this.near.update(item);
+            this.nearIds.put(id, true);
+            this.demoteOverflow();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Removes a previously cached item from both tiers. If the item is not found in either tier,
+     * nothing happens.
+     * </p>
+     * @param id The unique identifier of the item to delete.
+     */
+    public void delete(Serializable id) {
+        this.lock.lock();
+        try {
+            this.near.delete(id);
+            this.nearIds.remove(id);
+            this.far.remove(id);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Evicts all items from both tiers.
+     * </p>
+     */
+    public void evictAll() {
+        this.lock.lock();
+        try {
+            this.near.evictAll();
+            this.nearIds.clear();
+            this.far.clear();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void promote(Serializable id, CachedItem<T> item) {
+        this.far.remove(id);
+        this.near.attach(id, item);
+        this.nearIds.put(id, true);
+        this.demoteOverflow();
+    }
+
+    private void demoteOverflow() {
+        Iterator<Serializable> leastRecentlyUsed = this.nearIds.keySet().iterator();
+        while (this.nearIds.size() > this.nearCapacity) {
+            Serializable id = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            this.near.detach(id).ifPresent(item -> this.far.put(id, item));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * An {@link InvalidationTransport} that sends batches as UDP datagrams, either to a multicast group or
+ * to a list of peer addresses, and receives them on a background thread.
+ * </p>
+ * <p>
+ * Batches are encoded using Java serialization. To avoid deserializing arbitrary classes from the
+ * network, only item identifiers of the standard string, number and {@link UUID} types are accepted
+ * by default. Additional identifier types can be accepted by listing them when constructing the
+ * transport. Datagrams that cannot be decoded are ignored.
+ * </p>
+ * <p>
+ * Batches too large to fit in a single datagram are split across several datagrams. A large receive
+ * buffer is requested, so that a burst of datagrams is not dropped while the receiving thread catches
+ * up, although the operating system may limit its size.
+ * </p>
+ */
+public class UdpInvalidationTransport implements InvalidationTransport, AutoCloseable {
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final Set<String> STANDARD_TYPES = new HashSet<>(Arrays.asList(
+            String.class.getName(), Number.class.getName(), Long.class.getName(), Integer.class.getName(),
+            Short.class.getName(), Byte.class.getName(), Character.class.getName(), UUID.class.getName()));
+
+    private final DatagramSocket socket;
+    private final List<SocketAddress> peers;
+    private final Set<String> acceptedTypes;
+    private final List<Consumer<InvalidationBatch>> subscribers;
+
+    /**
+     * <p>
+     * Constructs a transport that exchanges batches with the members of a multicast group. Batches
+     * published by this transport are also delivered back to it.
+     * </p>
+     * @param group The multicast group address.
+     * @param port The port on which the group communicates.
+     * @param idTypes Any additional item identifier types to accept.
+     * @throws UncheckedIOException If the socket cannot be opened or the group cannot be joined.
+     */
+    public UdpInvalidationTransport(InetAddress group, int port, Class<?>... idTypes) {
+        this(multicastSocket(group, port), Collections.singletonList(new InetSocketAddress(group, port)), idTypes);
+    }
+
+    /**
+     * <p>
+     * Constructs a transport that receives batches on the provided address and sends batches to each of
+     * the provided peers. Further peers can be added later using the
+     * {@link UdpInvalidationTransport#addPeer(SocketAddress)} method.
+     * </p>
+     * @param address The local address on which to receive batches, which may use port zero to pick any
+     *                free port.
+     * @param peers The addresses of the peers to which to send batches.
+     * @param idTypes Any additional item identifier types to accept.
+     * @throws UncheckedIOException If the socket cannot be opened.
+     */
+    public UdpInvalidationTransport(SocketAddress address, Collection<? extends SocketAddress> peers, Class<?>... idTypes) {
+        this(datagramSocket(address), peers, idTypes);
+    }
+
+    private UdpInvalidationTransport(DatagramSocket socket, Collection<? extends SocketAddress> peers, Class<?>... idTypes) {
+        this.socket = socket;
+        try {
+            socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+        }
+        catch (SocketException e) {
+            // The default receive buffer is kept, at the cost of dropping more datagrams under bursts
+        }
+        this.peers = new CopyOnWriteArrayList<>(peers);
+        this.acceptedTypes = new HashSet<>(STANDARD_TYPES);
+        Arrays.stream(idTypes).map(Class::getName).forEach(this.acceptedTypes::add);
+        this.subscribers = new CopyOnWriteArrayList<>();
+        Thread receiver = new Thread(this::receive, "item-cache-invalidation-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * @return The local address on which this transport receives batches.
+     */
+    public SocketAddress getLocalAddress() {
+        return this.socket.getLocalSocketAddress();
+    }
+
+    /**
+     * Adds a peer to which to send batches.
+     * @param peer The address of the peer.
+     */
+    public void addPeer(SocketAddress peer) {
+        this.peers.add(peer);
+    }
+
+    /**
+     * <p>
+     * Sends a batch to every peer. A failure to send to one peer does not prevent the batch from being
+     * sent to the remaining peers.
+     * </p>
+     * @param batch The batch to publish.
+     * @throws RuntimeException The first failure to send to a peer, with any further failures
+     *                          suppressed, which is an {@link UncheckedIOException} if the datagram
+     *                          could not be sent.
+     */
+    @Override
+    public void publish(InvalidationBatch batch) {
+        RuntimeException failure = this.send(batch, null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationBatch> subscriber) {
+        this.subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<InvalidationBatch> subscriber) {
+        this.subscribers.remove(subscriber);
+    }
+
+    /**
+     * Closes the socket and stops receiving batches.
+     */
+    @Override
+    public void close() {
+        this.socket.close();
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while (! this.socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                this.socket.receive(packet);
+            }
+            catch (IOException e) {
+                continue;
+            }
+            Optional<InvalidationBatch> batch = this.decode(packet.getData(), packet.getLength());
+            batch.ifPresent(received -> this.subscribers.forEach(subscriber -> subscriber.accept(received)));
+        }
+    }
+
+    private RuntimeException send(InvalidationBatch batch, RuntimeException failure) {
+        byte[] data = encode(batch);
+        if (data.length > MAX_DATAGRAM_SIZE && batch.getVersions().size() > 1) {
+            List<Map.Entry<Serializable, Long>> versions = new ArrayList<>(batch.getVersions().entrySet());
+            int half = versions.size() / 2;
+            failure = this.send(new InvalidationBatch(batch.getOrigin(), toMap(versions.subList(0, half))), failure);
+            return this.send(new InvalidationBatch(batch.getOrigin(), toMap(versions.subList(half, versions.size()))), failure);
+        }
+        for (SocketAddress peer : this.peers) {
+            try {
+                this.socket.send(new DatagramPacket(data, data.length, peer));
+            }
+            catch (IOException e) {
+                failure = failed(failure, new UncheckedIOException(e));
+            }
+            catch (RuntimeException e) {
+                failure = failed(failure, e);
+            }
+        }
+        return failure;
+    }
+
+    private Optional<InvalidationBatch> decode(byte[] data, int length) {
+        try (ObjectInputStream input = new AcceptedTypesInputStream(new ByteArrayInputStream(data, 0, length), this.acceptedTypes)) {
+            String origin = (String) input.readObject();
+            int count = input.readInt();
+            Map<Serializable, Long> versions = new LinkedHashMap<>();
+            for (int i = 0; i < count; i ++) {
+                versions.put((Serializable) input.readObject(), input.readLong());
+            }
+            return Optional.of(new InvalidationBatch(origin, versions));
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] encode(InvalidationBatch batch) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(batch.getOrigin());
+            output.writeInt(batch.getVersions().size());
+            for (Map.Entry<Serializable, Long> version : batch.getVersions().entrySet()) {
+                output.writeObject(version.getKey());
+                output.writeLong(version.getValue());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RuntimeException failed(RuntimeException failure, RuntimeException peerFailure) {
+        if (failure == null) {
+            return peerFailure;
+        }
+        failure.addSuppressed(peerFailure);
+        return failure;
+    }
+
+    private static Map<Serializable, Long> toMap(List<Map.Entry<Serializable, Long>> entries) {
+        Map<Serializable, Long> map = new LinkedHashMap<>();
+        entries.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+        return map;
+    }
+
+    private static DatagramSocket multicastSocket(InetAddress group, int port) {
+        try {
+            MulticastSocket socket = new MulticastSocket(port);
+            socket.joinGroup(group);
+            return socket;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DatagramSocket datagramSocket(SocketAddress address) {
+        try {
+            return new DatagramSocket(address);
+        }
+        catch (SocketException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class AcceptedTypesInputStream extends ObjectInputStream {
+        private final Set<String> acceptedTypes;
+
+        private AcceptedTypesInputStream(InputStream input, Set<String> acceptedTypes) throws IOException {
+            super(input);
+            this.acceptedTypes = acceptedTypes;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+            if (! this.acceptedTypes.contains(description.getName())) {
+                throw new InvalidClassException(description.getName(), "Not an accepted identifier type");
+            }
+            return super.resolveClass(description);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * An {@link Interner} that holds canonical instances through weak references, so that a canonical
+ * instance can be reclaimed by the garbage collector once nothing else refers to it.
+ * </p>
+ * <p>
+ * Values are spread across a number of independently locked stripes by their hash code, so that
+ * concurrent callers interning unrelated values rarely contend. Values must be immutable, at least in
+ * the state that determines their equality, and have a consistent equals and hashCode.
+ * </p>
+ * @param <T> The type of value to intern.
+ */
+public class WeakInterner<T> implements Interner<T> {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final Map<T, WeakReference<T>>[] stripes;
+
+    /**
+     * Constructs an interner with the default number of stripes.
+     */
+    public WeakInterner() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs an interner with the provided number of stripes.
+     * @param stripes The number of independently locked stripes across which to spread values.
+     * @throws IllegalArgumentException If the number of stripes is not positive.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WeakInterner(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Attempt to create an interner without stripes");
+        }
+        this.stripes = new Map[stripes];
+        for (int stripe = 0; stripe < stripes; stripe ++) {
+            this.stripes[stripe] = new WeakHashMap<>();
+        }
+    }
+
+    @Override
+    public T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        Map<T, WeakReference<T>> stripe = this.stripes[(int) Math.floorMod(Hashing.hash(value), (long) this.stripes.length)];
+        synchronized (stripe) {
+            WeakReference<T> reference = stripe.get(value);
+            T canonical = reference == null ? null : reference.get();
+            if (canonical != null) {
+                return canonical;
+            }
+            stripe.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+}
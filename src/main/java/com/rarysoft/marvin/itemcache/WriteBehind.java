@@ -0,0 +1,362 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Applies changes to a {@link Cache} immediately, and writes them to the remote repository later, in
+ * batches, using an {@link ItemWriter}.
+ * </p>
+ * <p>
+ * Changes are coalesced per item, so that only the last change to any particular item since the
+ * previous write is written. Pending changes are written once the configured batch size is reached,
+ * and at the configured interval. If the configured maximum number of pending changes is reached,
+ * further changes block until pending changes have been written.
+ * </p>
+ * <p>
+ * If the writer throws an exception, the changes that it failed to write are kept pending, unless
+ * superseded by later changes, and retried on the next write.
+ * </p>
+ * <p>
+ * Closing the write behind waits for changes already being applied to be queued, and then writes any
+ * pending changes, after which no further changes are accepted.
+ * </p>
+ * @param <T> The type of item stored in the cache.
+ */
+public class WriteBehind<T> implements AutoCloseable {
+    private final Cache<T> cache;
+    private final ItemWriter<T> writer;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock lock;
+    private final Condition drained;
+    private final Condition settled;
+    private final ReentrantLock flushLock;
+
+    private LinkedHashMap<Serializable, Optional<T>> pending;
+    private int changing;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    /**
+     * <p>
+     * Constructs a write behind for the provided cache, writing changes using the provided writer.
+     * </p>
+     * @param cache The cache to which to apply changes.
+     * @param writer The writer to use to write changes to the remote repository.
+     * @param batchSize The number of pending changes at which to write, which is also the largest
+     *                  number of changes written in a single batch.
+     * @param flushIntervalInMillis The number of milliseconds between writes of pending changes.
+     * @param maxPending The number of pending changes at which to block further changes.
+     * @throws IllegalArgumentException If the batch size or flush interval is not positive, or the
+     *                                  maximum pending is lower than the batch size.
+     */
+    public WriteBehind(Cache<T> cache, ItemWriter<T> writer, int batchSize, long flushIntervalInMillis, int maxPending) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (flushIntervalInMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        if (maxPending < batchSize) {
+            throw new IllegalArgumentException("Maximum pending must be at least the batch size");
+        }
+        this.cache = cache;
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.pending = new LinkedHashMap<>();
+        this.lock = new ReentrantLock();
+        this.drained = this.lock.newCondition();
+        this.settled = this.lock.newCondition();
+        this.flushLock = new ReentrantLock();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalInMillis, flushIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>
+     * Adds an item to the cache, as described by {@link Cache#add(Object)}, and queues it to be
+     * written to the remote repository.
+     * </p>
+     * @param item The item to add.
+     * @throws IllegalStateException If the write behind has been closed, or as described by
+     *                               {@link Cache#add(Object)}, in which case nothing is queued.
+     */
+    public void add(T item) {
+        this.awaitCapacity();
+        try {
+            this.cache.add(item);
+            this.enqueue(this.cache.id(item), Optional.of(item));
+        }
+        finally {
+            this.changed();
+        }
+    }
+
+    /**
+     * <p>
+     * Updates an item in the cache, as described by {@link Cache#update(Object)}, and queues it to be
+     * written to the remote repository. The item is queued even if the cache reports that it was not
+     * properly synchronized, since the cache then still holds the item. If the cache rejects the item,
+     * such as when it has the same key in a unique index as a different cached item, nothing is queued.
+     * </p>
+     * @param item The item to update.
+     * @throws IllegalStateException If the write behind has been closed, or as described by
+     *                               {@link Cache#update(Object)}.
+     */
+    public void update(T item) {
+        this.awaitCapacity();
+        try {
+            this.cache.update(item);
+            this.enqueue(this.cache.id(item), Optional.of(item));
+        }
+        catch (IllegalStateException e) {
+            if (this.cache.holds(item)) {
+                this.enqueue(this.cache.id(item), Optional.of(item));
+            }
+            throw e;
+        }
+        finally {
+            this.changed();
+        }
+    }
+
+    /**
+     * <p>
+     * Removes an item from the cache, as described by {@link Cache#delete(Serializable)}, and queues
+     * its deletion to be written to the remote repository. The deletion is queued even if the cache
+     * reports that it was not properly synchronized.
+     * </p>
+     * @param id The unique identifier of the item to delete.
+     * @throws IllegalStateException If the write behind has been closed, or as described by
+     *                               {@link Cache#delete(Serializable)}.
+     */
+    public void delete(Serializable id) {
+        this.awaitCapacity();
+        try {
+            this.cache.delete(id);
+        }
+        finally {
+            this.enqueue(id, Optional.empty());
+            this.changed();
+        }
+    }
+
+    /**
+     * <p>
+     * Indicates the number of changes waiting to be written.
+     * </p>
+     * @return The number of pending changes.
+     */
+    public int pending() {
+        this.lock.lock();
+        try {
+            return this.pending.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Writes all pending changes to the remote repository, in batches, before returning.
+     * </p>
+     * @throws RuntimeException Any exception thrown by the writer, in which case the changes that were
+     *                          not written remain pending.
+     */
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            Map<Serializable, Optional<T>> changes = this.takePending();
+            List<Serializable> ids = new ArrayList<>(changes.keySet());
+            for (int start = 0; start < ids.size(); start += this.batchSize) {
+                List<Serializable> batch = ids.subList(start, Math.min(ids.size(), start + this.batchSize));
+                try {
+                    this.write(batch, changes);
+                }
+                catch (RuntimeException e) {
+                    this.restorePending(ids.subList(start, ids.size()), changes);
+                    throw e;
+                }
+            }
+        }
+        finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Writes all pending changes to the remote repository and stops accepting further changes.
+     * </p>
+     * @throws RuntimeException Any exception thrown by the writer.
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.drained.signalAll();
+            while (this.changing > 0) {
+                this.settled.awaitUninterruptibly();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        this.scheduler.shutdown();
+        this.flush();
+    }
+
+    private void awaitCapacity() {
+        this.lock.lock();
+        try {
+            while (! this.closed && this.pending.size() >= this.maxPending) {
+                this.scheduleFlush();
+                try {
+                    this.drained.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (this.closed) {
+                throw new IllegalStateException("Attempt to change a closed write behind");
+            }
+            this.changing ++;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void changed() {
+        this.lock.lock();
+        try {
+            this.changing --;
+            if (this.changing == 0) {
+                this.settled.signalAll();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void enqueue(Serializable id, Optional<T> change) {
+        this.lock.lock();
+        try {
+            this.pending.remove(id);
+            this.pending.put(id, change);
+            if (this.pending.size() >= this.batchSize) {
+                this.scheduleFlush();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (this.flushScheduled || this.closed) {
+            return;
+        }
+        this.flushScheduled = true;
+        this.scheduler.execute(this::flushQuietly);
+    }
+
+    private void flushQuietly() {
+        this.lock.lock();
+        try {
+            this.flushScheduled = false;
+        }
+        finally {
+            this.lock.unlock();
+        }
+        try {
+            this.flush();
+        }
+        catch (RuntimeException e) {
+            // The changes remain pending, and are retried on the next scheduled write.
+        }
+    }
+
+    private Map<Serializable, Optional<T>> takePending() {
+        this.lock.lock();
+        try {
+            Map<Serializable, Optional<T>> changes = this.pending;
+            this.pending = new LinkedHashMap<>();
+            this.drained.signalAll();
+            return changes;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void restorePending(List<Serializable> ids, Map<Serializable, Optional<T>> changes) {
+        this.lock.lock();
+        try {
+            LinkedHashMap<Serializable, Optional<T>> restored = new LinkedHashMap<>();
+            ids.forEach(id -> restored.put(id, changes.get(id)));
+            restored.keySet().removeAll(this.pending.keySet());
+            restored.putAll(this.pending);
+            this.pending = restored;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void write(List<Serializable> ids, Map<Serializable, Optional<T>> changes) {
+        List<T> items = new ArrayList<>();
+        List<Serializable> deletedIds = new ArrayList<>();
+        ids.forEach(id -> {
+            Optional<T> change = changes.get(id);
+            if (change.isPresent()) {
+                items.add(change.get());
+            }
+            else {
+                deletedIds.add(id);
+            }
+        });
+        this.writer.write(items, deletedIds);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessBufferTest {
+    @Test
+    public void drainPassesAccessesInOrderRecorded() {
+        AccessBuffer buffer = new AccessBuffer(1, 4);
+        buffer.offer("val1", 1L);
+        buffer.offer("val2", 2L);
+        List<String> drained = new ArrayList<>();
+
+        buffer.drain((id, accessed) -> drained.add(id + "@" + accessed));
+
+        assertThat(drained).containsExactly("val1@1", "val2@2");
+    }
+
+    @Test
+    public void drainWhenAlreadyDrainedPassesNothing() {
+        AccessBuffer buffer = new AccessBuffer(1, 4);
+        buffer.offer("val1", 1L);
+        buffer.drain((id, accessed) -> {});
+        List<Serializable> drained = new ArrayList<>();
+
+        buffer.drain((id, accessed) -> drained.add(id));
+
+        assertThat(drained).isEmpty();
+    }
+
+    @Test
+    public void offerWhenFullReturnsFalse() {
+        AccessBuffer buffer = new AccessBuffer(1, 2);
+        buffer.offer("val1", 1L);
+        buffer.offer("val2", 2L);
+
+        boolean result = buffer.offer("val3", 3L);
+
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    public void offerAfterDrainReusesBuffer() {
+        AccessBuffer buffer = new AccessBuffer(1, 2);
+        buffer.offer("val1", 1L);
+        buffer.offer("val2", 2L);
+        buffer.drain((id, accessed) -> {});
+        buffer.offer("val3", 3L);
+        List<Serializable> drained = new ArrayList<>();
+
+        buffer.tryDrain((id, accessed) -> drained.add(id));
+
+        assertThat(drained).containsExactly("val3");
+    }
+
+    @Test
+    public void offerRoundsCapacityUpToPowerOfTwo() {
+        AccessBuffer buffer = new AccessBuffer(1, 3);
+        buffer.offer("val1", 1L);
+        buffer.offer("val2", 2L);
+        buffer.offer("val3", 3L);
+
+        boolean result = buffer.offer("val4", 4L);
+
+        assertThat(result).isTrue();
+    }
+}
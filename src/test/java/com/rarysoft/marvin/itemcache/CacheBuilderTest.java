@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheBuilderTest {
+    @Mock
+    private TimestampGenerator timestampGenerator;
+
+    @Test
+    public void buildWhenNoItemsProvidedReturnsNotFullyPopulatedCache() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).build();
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void buildWhenItemsProvidedReturnsFullyPopulatedCache() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).all(Arrays.asList("val1", "val2")).build();
+
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("val1", "val2");
+    }
+
+    @Test
+    public void buildWhenTimestampGeneratorProvidedUsesTimestampGenerator() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new CacheBuilder<String>(value -> value).timestampGenerator(timestampGenerator).all(Collections.singletonList("val1")).build();
+
+        cache.evict(0);
+
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void buildWhenMaximumSizeProvidedLimitsItems() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).maximumSize(2).build();
+
+        cache.add("val1");
+        cache.add("val2");
+        cache.add("val3");
+
+        assertThat(cache.getWeight()).isEqualTo(2);
+    }
+
+    @Test
+    public void buildWhenItemsProvidedStoresItemsThroughFeatures() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).weightLimit(100, String::length).all(Arrays.asList("val1", "val2")).build();
+
+        assertThat(cache.getWeight()).isEqualTo(8);
+    }
+
+    @Test
+    public void buildWhenIndexProvidedRegistersIndex() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).uniqueIndex("upper", String::toUpperCase).all(Collections.singletonList("val1")).build();
+
+        assertThat(cache.findOneBy("upper", "VAL1")).contains("val1");
+    }
+
+    @Test
+    public void buildWhenListenerProvidedRegistersListener() {
+        List<CacheEvent<String>> events = new ArrayList<>();
+        Cache<String> cache = new CacheBuilder<String>(value -> value).listener(events::add).build();
+
+        cache.add("val1");
+
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    public void buildWhenIndexAndSoftValuesProvidedThrowsIllegalStateException() {
+        CacheBuilder<String> builder = new CacheBuilder<String>(value -> value).index("length", String::length).softValues();
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    @Test
+    public void buildWithoutFeaturesReturnsCacheThatStoresAndRetrievesItems() {
+        List<CacheEvent<String>> events = new ArrayList<>();
+        Cache<String> cache = new CacheBuilder<String>(value -> value).listener(events::add).build();
+
+        cache.add("val1");
+
+        assertThat(cache.get("val1")).contains("val1");
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    public void buildWithoutFeaturesReturnsCacheThatRejectsFeatures() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).build();
+
+        assertThrows(IllegalStateException.class, cache::enableStats);
+        assertThrows(IllegalStateException.class, () -> cache.addIndex("length", String::length));
+    }
+
+    @Test
+    public void buildWithFeatureReturnsCacheThatAcceptsFurtherFeatures() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).stats().all(Collections.emptyList()).build();
+
+        cache.addIndex("length", String::length);
+        cache.add("val1");
+
+        assertThat(cache.findBy("length", 4)).containsExactly("val1");
+    }
+
+    @Test
+    public void buildWhenConcurrencyLevelNotPositiveThrowsIllegalArgumentException() {
+        CacheBuilder<String> builder = new CacheBuilder<String>(value -> value).bufferedAccessRecording(16).concurrencyLevel(0);
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    public void buildWhenExpireAfterWriteProvidedEvictsExpiredItems() throws InterruptedException {
+        AtomicLong now = new AtomicLong(1000000000L);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Cache<String> cache = new CacheBuilder<String>(value -> value).timestampGenerator(now::get).expireAfterWrite(1000, 1, scheduler).build();
+            cache.add("val1");
+            now.addAndGet(1001);
+
+            for (int i = 0; i < 100 && cache.contains("val1"); i ++) {
+                Thread.sleep(10);
+            }
+
+            assertThat(cache.contains("val1")).isFalse();
+        }
+        finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void buildWhenExpireAfterAccessProvidedKeepsAccessedItems() throws InterruptedException {
+        AtomicLong now = new AtomicLong(1000000000L);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Cache<String> cache = new CacheBuilder<String>(value -> value).timestampGenerator(now::get).expireAfterAccess(1000, 1, scheduler).build();
+            cache.add("val1");
+            cache.add("val2");
+            now.addAndGet(500);
+            cache.get("val1");
+            now.addAndGet(501);
+
+            for (int i = 0; i < 100 && cache.contains("val2"); i ++) {
+                Thread.sleep(10);
+            }
+
+            assertThat(cache.contains("val1")).isTrue();
+            assertThat(cache.contains("val2")).isFalse();
+        }
+        finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void buildWhenFeatureRequestedTwiceEnablesItOnce() {
+        Cache<String> cache = new CacheBuilder<String>(value -> value).sampledAccessRecording(10).bufferedAccessRecording(16).build();
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+}
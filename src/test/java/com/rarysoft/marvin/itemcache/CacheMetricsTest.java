@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CacheMetricsTest {
+    @Test
+    public void registerMXBeanPublishesStatistics() throws Exception {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableStats();
+        cache.get("val1");
+
+        ObjectName objectName = CacheMetrics.registerMXBean(cache, "widgets");
+        try {
+            assertThat(objectName.toString()).isEqualTo("com.rarysoft.marvin.itemcache:type=Cache,name=widgets");
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "FullItemCount")).isEqualTo(1);
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "HitCount")).isEqualTo(1L);
+        }
+        finally {
+            CacheMetrics.unregisterMXBean(objectName);
+        }
+    }
+
+    @Test
+    public void registerMXBeanWhenNameNeedsQuotingQuotesName() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        ObjectName objectName = CacheMetrics.registerMXBean(cache, "widgets, by id");
+        try {
+            assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isTrue();
+        }
+        finally {
+            CacheMetrics.unregisterMXBean(objectName);
+        }
+    }
+
+    @Test
+    public void registerMXBeanWhenNameAlreadyRegisteredThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        ObjectName objectName = CacheMetrics.registerMXBean(cache, "gadgets");
+        try {
+            assertThrows(IllegalStateException.class, () -> CacheMetrics.registerMXBean(cache, "gadgets"));
+        }
+        finally {
+            CacheMetrics.unregisterMXBean(objectName);
+        }
+    }
+
+    @Test
+    public void unregisterMXBeanRemovesMXBean() {
+        Cache<String> cache = new Cache<>(value -> value);
+        ObjectName objectName = CacheMetrics.registerMXBean(cache, "sprockets");
+
+        CacheMetrics.unregisterMXBean(objectName);
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isFalse();
+    }
+
+    @Test
+    public void bindWhenNoBindersAvailableBindsNothing() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        int result = CacheMetrics.bind(cache, "widgets");
+
+        assertThat(result).isEqualTo(0);
+    }
+}
@@ -28,7 +28,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -1017,4 +1019,1662 @@ public class CacheTest {
 
         assertThat(cache.isFullyPopulated()).isFalse();
     }
+
+    @Test
+    public void findByWhenNotFullyPopulatedThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+        cache.add("abc1");
+
+        assertThrows(IllegalStateException.class, () -> cache.findBy("prefix", "abc"));
+    }
+
+    @Test
+    public void findByWithUnknownIndexThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("abc1", "abc2"));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.findBy("prefix", "abc"));
+    }
+
+    @Test
+    public void findByWhenFullyPopulatedReturnsItemsWithKey() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("abc1", "abc2", "xyz1"));
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+
+        Collection<String> result = cache.findBy("prefix", "abc");
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("abc1", "abc2");
+    }
+
+    @Test
+    public void findByAfterAddReturnsAddedItem() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("abc1"));
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+        cache.add("abc2");
+
+        Collection<String> result = cache.findBy("prefix", "abc");
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("abc1", "abc2");
+    }
+
+    @Test
+    public void findByAfterDeleteDoesNotReturnDeletedItem() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("abc1", "abc2"));
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+        cache.delete("abc1");
+
+        Collection<String> result = cache.findBy("prefix", "abc");
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("abc2");
+    }
+
+    @Test
+    public void findByAfterSetAllReturnsOnlyNewItems() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("abc1", "abc2"));
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+        cache.setAll(Arrays.asList("abc3", "xyz1"));
+
+        Collection<String> result = cache.findBy("prefix", "abc");
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("abc3");
+    }
+
+    @Test
+    public void addIndexWithExistingNameThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.addIndex("prefix", value -> value.substring(0, 3)));
+    }
+
+    @Test
+    public void findOneByWhenNotFullyPopulatedAndItemCachedReturnsItem() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addUniqueIndex("upper", String::toUpperCase);
+        cache.add("abc1");
+
+        Optional<String> result = cache.findOneBy("upper", "ABC1");
+
+        assertThat(result).isNotNull().contains("abc1");
+    }
+
+    @Test
+    public void findOneByWhenItemEvictedReturnsEmpty() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.addUniqueIndex("upper", String::toUpperCase);
+        cache.add("abc1");
+        cache.evictUnaccessed(0);
+
+        Optional<String> result = cache.findOneBy("upper", "ABC1");
+
+        assertThat(result).isNotNull().isEmpty();
+    }
+
+    @Test
+    public void findOneByWithNonUniqueIndexThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addIndex("prefix", value -> value.substring(0, 3));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.findOneBy("prefix", "abc"));
+    }
+
+    @Test
+    public void addWithDuplicateUniqueKeyThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addUniqueIndex("prefix", value -> value.substring(0, 3));
+        cache.add("abc1");
+
+        assertThrows(IllegalStateException.class, () -> cache.add("abc2"));
+    }
+
+    @Test
+    public void addWithDuplicateUniqueKeyDoesNotAddItem() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addUniqueIndex("prefix", value -> value.substring(0, 3));
+        cache.add("abc1");
+
+        assertThrows(IllegalStateException.class, () -> cache.add("abc2"));
+
+        assertThat(cache.contains("abc2")).isFalse();
+    }
+
+    @Test
+    public void rangeWhenNotFullyPopulatedThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addOrderedIndex("value", value -> value);
+
+        assertThrows(IllegalStateException.class, () -> cache.range("value", "a", "z"));
+    }
+
+    @Test
+    public void rangeWithUnorderedIndexThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        cache.addIndex("value", value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.range("value", "a", "z"));
+    }
+
+    @Test
+    public void rangeWhenFullyPopulatedReturnsItemsInRangeInOrder() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val4", "val1", "val3", "val2"));
+        cache.addOrderedIndex("value", value -> value);
+
+        List<String> result = cache.range("value", "val2", "val4");
+
+        assertThat(result).isNotNull().containsExactly("val2", "val3");
+    }
+
+    @Test
+    public void rangeAfterDeleteDoesNotReturnDeletedItem() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2", "val3"));
+        cache.addOrderedIndex("value", value -> value);
+        cache.delete("val2");
+
+        List<String> result = cache.range("value", "val1", "val4");
+
+        assertThat(result).isNotNull().containsExactly("val1", "val3");
+    }
+
+    @Test
+    public void headReturnsFirstItemsInOrder() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val3", "val1", "val2"));
+        cache.addOrderedIndex("value", value -> value);
+
+        List<String> result = cache.head("value", 2);
+
+        assertThat(result).isNotNull().containsExactly("val1", "val2");
+    }
+
+    @Test
+    public void headWithCreatedIndexReturnsOldestItemsFirst() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000002L, 1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.setAll(Arrays.asList("val1", "val2", "val3"));
+        cache.addCreatedIndex("created");
+
+        List<String> result = cache.head("created", 3);
+
+        assertThat(result).isNotNull().containsExactly("val2", "val3", "val1");
+    }
+
+    @Test
+    public void headWithModifiedIndexReturnsMostRecentlyModifiedItemsLast() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"));
+        cache.addModifiedIndex("modified");
+        cache.update("val1");
+
+        List<String> result = cache.head("modified", 2);
+
+        assertThat(result).isNotNull().containsExactly("val2", "val1");
+    }
+
+    @Test
+    public void pageWithCursorReturnsItemsAfterCursor() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2", "val3", "val4", "val5"));
+        cache.addOrderedIndex("value", value -> value);
+        IndexPage<String> first = cache.page("value", null, 2);
+
+        IndexPage<String> result = cache.page("value", first.getNext().orElse(null), 2);
+
+        assertThat(result.getItems()).isNotNull().containsExactly("val3", "val4");
+    }
+
+    @Test
+    public void pageWithItemsSharingKeyReturnsEachItemOnce() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("a1", "a2", "a3", "b1"));
+        cache.addOrderedIndex("prefix", value -> value.substring(0, 1));
+        IndexPage<String> first = cache.page("prefix", null, 2);
+        IndexPage<String> second = cache.page("prefix", first.getNext().orElse(null), 2);
+
+        List<String> result = new ArrayList<>(first.getItems());
+        result.addAll(second.getItems());
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("a1", "a2", "a3", "b1");
+    }
+
+    @Test
+    public void pageWhenNoFurtherItemsReturnsNoNextCursor() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        cache.addOrderedIndex("value", value -> value);
+
+        IndexPage<String> result = cache.page("value", null, 2);
+
+        assertThat(result.getNext()).isNotNull().isEmpty();
+    }
+
+    @Test
+    public void isKnownMissingWhenNotFullyPopulatedAndNotMarkedReturnsFalse() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThat(cache.isKnownMissing("val1")).isFalse();
+    }
+
+    @Test
+    public void isKnownMissingWhenFullyPopulatedAndNotCachedReturnsTrue() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+
+        assertThat(cache.isKnownMissing("val2")).isTrue();
+    }
+
+    @Test
+    public void isKnownMissingWhenFullyPopulatedAndCachedReturnsFalse() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+
+        assertThat(cache.isKnownMissing("val1")).isFalse();
+    }
+
+    @Test
+    public void isKnownMissingWhenMarkedMissingWithinTtlReturnsTrue() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000500L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.markMissing("val1", 1000);
+
+        assertThat(cache.isKnownMissing("val1")).isTrue();
+    }
+
+    @Test
+    public void isKnownMissingWhenMarkedMissingAfterTtlReturnsFalse() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.markMissing("val1", 1000);
+
+        assertThat(cache.isKnownMissing("val1")).isFalse();
+    }
+
+    @Test
+    public void isKnownMissingWhenMarkedMissingAndThenAddedReturnsFalse() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.markMissing("val1", 1000);
+        cache.add("val1");
+        cache.delete("val1");
+
+        assertThat(cache.isKnownMissing("val1")).isFalse();
+    }
+
+    @Test
+    public void isKnownMissingWhenMarkedMissingAndThenEvictedAllReturnsFalse() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.markMissing("val1", 1000);
+        cache.evictAll();
+
+        assertThat(cache.isKnownMissing("val1")).isFalse();
+    }
+
+    @Test
+    public void getWithTimeoutWhenMarkedMissingReturnsEmptyWithoutWaiting() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.markMissing("val1", 1000);
+        long start = System.currentTimeMillis();
+
+        Optional<String> result = cache.get("val1", 5000);
+
+        assertThat(result).isNotNull().isEmpty();
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000L);
+    }
+
+    @Test
+    public void mightContainWithoutMembershipFilterReturnsTrue() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThat(cache.mightContain("val1")).isTrue();
+    }
+
+    @Test
+    public void mightContainWithMembershipFilterWhenNotCachedReturnsFalse() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableMembershipFilter(100, 0.01);
+
+        assertThat(cache.mightContain("val1")).isFalse();
+    }
+
+    @Test
+    public void mightContainWithMembershipFilterWhenCachedBeforeEnablingReturnsTrue() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableMembershipFilter(100, 0.01);
+
+        assertThat(cache.mightContain("val1")).isTrue();
+    }
+
+    @Test
+    public void mightContainWithMembershipFilterWhenAddedReturnsTrue() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableMembershipFilter(100, 0.01);
+        cache.add("val1");
+
+        assertThat(cache.mightContain("val1")).isTrue();
+    }
+
+    @Test
+    public void mightContainWithMembershipFilterWhenDeletedReturnsFalse() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableMembershipFilter(100, 0.01);
+        cache.add("val1");
+        cache.delete("val1");
+
+        assertThat(cache.mightContain("val1")).isFalse();
+    }
+
+    @Test
+    public void containsWithMembershipFilterWhenUpdatedAndDowngradedReturnsTrue() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableMembershipFilter(100, 0.01);
+        cache.update("val1");
+
+        assertThrows(IllegalStateException.class, () -> cache.delete("val2"));
+
+        assertThat(cache.contains("val1")).isTrue();
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemRecentlyAddedDoesNotReload() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000500L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        List<Serializable> loaded = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> {
+            loaded.add(id);
+            return Optional.of((String) id);
+        }, Runnable::run);
+        cache.add("val1");
+
+        cache.get("val1");
+
+        assertThat(loaded).isEmpty();
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDueReturnsCachedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableRefreshAhead(1000, id -> Optional.of("new"), Runnable::run);
+        cache.add("val1");
+
+        Optional<String> result = cache.get("val1");
+
+        assertThat(result).isNotNull().contains("val1");
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDueReplacesItemWithReloadedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L, 1000001002L);
+        Cache<StringBuilder> cache = new Cache<>(timestampGenerator, StringBuilder::toString);
+        cache.enableRefreshAhead(1000, id -> Optional.of(new StringBuilder("val1")), Runnable::run);
+        StringBuilder original = new StringBuilder("val1");
+        cache.add(original);
+        cache.get("val1");
+
+        Optional<StringBuilder> result = cache.get("val1");
+
+        assertThat(result.orElse(original)).isNotSameAs(original);
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDueAndReloadedKeepsItemClearOfEvictUnmodified() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L, 1000001002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableRefreshAhead(1000, id -> Optional.of((String) id), Runnable::run);
+        cache.add("val1");
+        cache.get("val1");
+
+        cache.evictUnmodified(1000);
+
+        assertThat(cache.contains("val1")).isTrue();
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemUpdatedWhileReloadingKeepsUpdatedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L, 1000001002L);
+        Cache<StringBuilder> cache = new Cache<>(timestampGenerator, StringBuilder::toString);
+        List<Runnable> reloads = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> Optional.of(new StringBuilder("val1")), reloads::add);
+        cache.add(new StringBuilder("val1"));
+        cache.get("val1");
+        StringBuilder updated = new StringBuilder("val1");
+        cache.update(updated);
+
+        reloads.forEach(Runnable::run);
+
+        assertThat(cache.get("val1").orElse(null)).isSameAs(updated);
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDeletedAndAddedAgainWhileReloadingKeepsAddedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L, 1000001002L);
+        Cache<StringBuilder> cache = new Cache<>(timestampGenerator, StringBuilder::toString);
+        List<Runnable> reloads = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> Optional.of(new StringBuilder("val1")), reloads::add);
+        cache.add(new StringBuilder("val1"));
+        cache.get("val1");
+        StringBuilder added = new StringBuilder("val1");
+        cache.delete("val1");
+        cache.add(added);
+
+        reloads.forEach(Runnable::run);
+
+        assertThat(cache.get("val1").orElse(null)).isSameAs(added);
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenCacheRepopulatedWhileReloadingKeepsRepopulatedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L, 1000001002L);
+        Cache<StringBuilder> cache = new Cache<>(timestampGenerator, StringBuilder::toString);
+        List<Runnable> reloads = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> Optional.of(new StringBuilder("val1")), reloads::add);
+        cache.add(new StringBuilder("val1"));
+        cache.get("val1");
+        StringBuilder repopulated = new StringBuilder("val1");
+        cache.setAll(Collections.singletonList(repopulated));
+
+        reloads.forEach(Runnable::run);
+
+        assertThat(cache.get("val1").orElse(null)).isSameAs(repopulated);
+    }
+
+    @Test
+    public void getWithTimeoutWithRefreshAheadWhenItemDueDoesNotBlockWriters() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        List<Boolean> written = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> {
+            Thread writer = new Thread(() -> cache.add("val2"));
+            writer.start();
+            try {
+                writer.join(1000);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(! writer.isAlive());
+            return Optional.of((String) id);
+        }, Runnable::run);
+        cache.add("val1");
+
+        Optional<String> result = cache.get("val1", 10);
+
+        assertThat(written).containsExactly(true);
+        assertThat(result).contains("val1");
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDueReportsReloadedItemToListeners() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableRefreshAhead(1000, id -> Optional.of((String) id), Runnable::run);
+        cache.add("val1");
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.get("val1");
+
+        assertThat(events.stream().map(CacheEvent::getType).collect(Collectors.toList())).containsExactly(CacheEvent.Type.RELOADED);
+        assertThat(events.get(0).getItem()).contains("val1");
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenItemDueAndNoLongerExistsRemovesItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableRefreshAhead(1000, id -> Optional.empty(), Runnable::run);
+        cache.add("val1");
+
+        cache.get("val1");
+
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void getWithRefreshAheadWhenReloadInProgressDoesNotReloadAgain() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000001000L, 1000001001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        List<Runnable> reloads = new ArrayList<>();
+        cache.enableRefreshAhead(1000, id -> Optional.of((String) id), reloads::add);
+        cache.add("val1");
+        cache.get("val1");
+
+        cache.get("val1");
+
+        assertThat(reloads).hasSize(1);
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenRecentlyDowngradedReturnsStaleItems() throws PollingTimeout {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000500L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        cache.enableStaleWhileRevalidate(1000, () -> Arrays.asList("val1", "val3"), runnable -> {});
+        assertThrows(IllegalStateException.class, () -> cache.delete("val3"));
+
+        Collection<String> result = cache.all(10);
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("val1", "val2");
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenRecentlyDowngradedRepopulatesCache() throws PollingTimeout {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        cache.enableStaleWhileRevalidate(1000, () -> Arrays.asList("val1", "val3"), Runnable::run);
+        cache.evictUnaccessed(0);
+
+        Collection<String> result = cache.all(10);
+
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("val1", "val3");
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenStaleItemsTooOldThrowsPollingTimeout() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000001003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        cache.enableStaleWhileRevalidate(1000, () -> Arrays.asList("val1", "val3"), runnable -> {});
+        assertThrows(IllegalStateException.class, () -> cache.delete("val3"));
+
+        assertThrows(PollingTimeout.class, () -> cache.all(10));
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenEvictedAllThrowsPollingTimeout() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        cache.enableStaleWhileRevalidate(1000, () -> Arrays.asList("val1", "val3"), runnable -> {});
+        cache.evictAll();
+
+        assertThrows(PollingTimeout.class, () -> cache.all(10));
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenRepopulatingDoesNotBlockWriters() throws PollingTimeout {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        List<Boolean> written = new ArrayList<>();
+        cache.enableStaleWhileRevalidate(1000, () -> {
+            Thread writer = new Thread(() -> cache.add("val4"));
+            writer.start();
+            try {
+                writer.join(1000);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(! writer.isAlive());
+            return Arrays.asList("val1", "val3");
+        }, Runnable::run);
+        cache.evictAll();
+
+        Collection<String> result = cache.all(10);
+
+        assertThat(written).containsExactly(true);
+        assertThat(result).isNotNull().containsExactlyInAnyOrder("val1", "val3");
+    }
+
+    @Test
+    public void allWithTimeoutWithStaleWhileRevalidateWhenRepopulationInProgressDoesNotRepopulateAgain() throws PollingTimeout {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        List<Runnable> repopulations = new ArrayList<>();
+        cache.enableStaleWhileRevalidate(1000, () -> Arrays.asList("val1", "val3"), repopulations::add);
+        assertThrows(IllegalStateException.class, () -> cache.delete("val3"));
+        cache.all(10);
+
+        cache.all(10);
+
+        assertThat(repopulations).hasSize(1);
+    }
+
+    @Test
+    public void addWithListenerReportsAddedEvent() {
+        Cache<String> cache = new Cache<>(value -> value);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.add("val1");
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.ADDED);
+        assertThat(events.get(0).getItem()).contains("val1");
+    }
+
+    @Test
+    public void updateWithListenerWhenItemCachedReportsUpdatedEvent() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.update("val1");
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.UPDATED);
+    }
+
+    @Test
+    public void deleteWithListenerWhenItemNotCachedReportsDeletedEvent() {
+        Cache<String> cache = new Cache<>(value -> value);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.delete("val1");
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.DELETED);
+        assertThat(events.get(0).getId()).isEqualTo("val1");
+    }
+
+    @Test
+    public void addWithRemovedListenerReportsNothing() {
+        Cache<String> cache = new Cache<>(value -> value);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        CacheListener<String> listener = events::add;
+        cache.addListener(listener);
+        cache.removeListener(listener);
+
+        cache.add("val1");
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void getVersionWhenSetAllWithVersionReturnsVersion() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+
+        assertThat(cache.getVersion()).hasValue(7);
+    }
+
+    @Test
+    public void getVersionWhenSetAllWithoutVersionReturnsEmpty() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+        cache.setAll(Arrays.asList("val1", "val2"));
+
+        assertThat(cache.getVersion()).isEmpty();
+    }
+
+    @Test
+    public void syncWhenVersionMatchesAppliesChanges() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+
+        boolean result = cache.sync(7, 9, Collections.singletonList("val3"), Collections.singletonList("val1"));
+
+        assertThat(result).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("val2", "val3");
+        assertThat(cache.getVersion()).hasValue(9);
+    }
+
+    @Test
+    public void syncWithListenerReportsReloadedItemsBeforeRepopulated() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.sync(7, 9, Collections.singletonList("val3"), Arrays.asList("val1", "val4"));
+
+        assertThat(events.stream().map(CacheEvent::getType).collect(Collectors.toList())).containsExactly(CacheEvent.Type.RELOADED, CacheEvent.Type.RELOADED, CacheEvent.Type.REPOPULATED);
+        assertThat(events.stream().map(CacheEvent::getId).collect(Collectors.toList())).containsExactly("val1", "val3", null);
+    }
+
+    @Test
+    public void syncWhenVersionDoesNotMatchAppliesNothing() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+
+        boolean result = cache.sync(8, 9, Collections.singletonList("val3"), Collections.singletonList("val1"));
+
+        assertThat(result).isFalse();
+        assertThat(cache.all()).containsExactlyInAnyOrder("val1", "val2");
+        assertThat(cache.getVersion()).hasValue(7);
+    }
+
+    @Test
+    public void syncWhenNoVersionAppliesNothing() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+
+        boolean result = cache.sync(7, 9, Collections.singletonList("val3"), Collections.emptyList());
+
+        assertThat(result).isFalse();
+        assertThat(cache.contains("val3")).isFalse();
+    }
+
+    @Test
+    public void syncWhenDowngradedByFailedDeleteRestoresFullyPopulatedState() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+        assertThrows(IllegalStateException.class, () -> cache.delete("val3"));
+
+        boolean result = cache.sync(7, 8, Collections.emptyList(), Collections.singletonList("val3"));
+
+        assertThat(result).isTrue();
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("val1", "val2");
+    }
+
+    @Test
+    public void syncWhenItemsEvictedAppliesNothing() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.setAll(Arrays.asList("val1", "val2"), 7);
+        cache.evict(-1000);
+
+        boolean result = cache.sync(7, 8, Collections.emptyList(), Collections.emptyList());
+
+        assertThat(result).isFalse();
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.getVersion()).isEmpty();
+    }
+
+    @Test
+    public void getWeightWhenWeightLimitEnabledReturnsTotalWeight() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("a", "bb"));
+        cache.enableWeightLimit(10, String::length);
+
+        cache.add("ccc");
+
+        assertThat(cache.getWeight()).isEqualTo(6);
+    }
+
+    @Test
+    public void getWeightWhenWeightLimitNotEnabledReturnsZero() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("a", "bb"));
+
+        assertThat(cache.getWeight()).isEqualTo(0);
+    }
+
+    @Test
+    public void deleteWhenWeightLimitEnabledReducesWeight() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("a", "bb"));
+        cache.enableWeightLimit(10, String::length);
+
+        cache.delete("bb");
+
+        assertThat(cache.getWeight()).isEqualTo(1);
+    }
+
+    @Test
+    public void addWhenWeightLimitExceededEvictsLeastRecentlyUsedItems() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L, 1000000004L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("aaa", "bbb", "ccc"));
+        cache.enableWeightLimit(9, String::length);
+        cache.get("aaa");
+
+        cache.add("ddd");
+
+        assertThat(cache.contains("aaa")).isTrue();
+        assertThat(cache.contains("bbb")).isFalse();
+        assertThat(cache.contains("ccc")).isTrue();
+        assertThat(cache.contains("ddd")).isTrue();
+        assertThat(cache.getWeight()).isEqualTo(9);
+    }
+
+    @Test
+    public void addWhenWeightLimitExceededEvictsDownToHeadroomBelowMaximum() {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 160; i ++) {
+            items.add("val" + i);
+        }
+        long[] now = {1000000000L};
+        Cache<String> cache = new Cache<>(() -> now[0] ++, value -> value, items);
+        cache.enableWeightLimit(160, item -> 1);
+
+        cache.add("val160");
+
+        assertThat(cache.getWeight()).isEqualTo(150);
+        assertThat(cache.contains("val160")).isTrue();
+    }
+
+    @Test
+    public void addWhenWeightLimitExceededLeavesStateAsNotFullyPopulated() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("aaa", "bbb"));
+        cache.enableWeightLimit(6, String::length);
+
+        cache.add("ccc");
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void addWhenItemHeavierThanWeightLimitReportsItemAddedBeforeEvicted() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableWeightLimit(6, String::length);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.add("aaaaaaa");
+
+        assertThat(events.stream().map(CacheEvent::getType).collect(Collectors.toList())).containsExactly(CacheEvent.Type.ADDED, CacheEvent.Type.EVICTED);
+        assertThat(cache.contains("aaaaaaa")).isFalse();
+    }
+
+    @Test
+    public void updateWhenItemHeavierThanWeightLimitReportsItemUpdatedBeforeEvicted() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 1));
+        cache.enableWeightLimit(6, String::length);
+        cache.add("a");
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.update("aaaaaaa");
+
+        assertThat(events.stream().map(CacheEvent::getType).collect(Collectors.toList())).containsExactly(CacheEvent.Type.UPDATED, CacheEvent.Type.EVICTED);
+        assertThat(cache.contains("a")).isFalse();
+    }
+
+    @Test
+    public void setAllWhenWeightLimitExceededLeavesStateAsNotFullyPopulated() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableWeightLimit(6, String::length);
+
+        cache.setAll(Arrays.asList("aaa", "bbb", "ccc"), 1);
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.getVersion()).isEmpty();
+        assertThat(cache.getWeight()).isEqualTo(6);
+    }
+
+    @Test
+    public void updateWhenWeightLimitExceededAndItemNotFoundThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("aaa", "bbb"));
+        cache.enableWeightLimit(6, String::length);
+
+        assertThrows(IllegalStateException.class, () -> cache.update("ccc"));
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void enableWeightLimitWhenWeightExceededEvictsItems() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("aaa", "bbb", "ccc"));
+
+        cache.enableWeightLimit(3, String::length);
+
+        assertThat(cache.getWeight()).isEqualTo(3);
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void enableWeightLimitWithNegativeMaximumThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.enableWeightLimit(-1, String::length));
+    }
+
+    @Test
+    public void addWhenWeigherReturnsNegativeWeightThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableWeightLimit(10, item -> -1);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.add("val1"));
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void getWhenWeakValuesEnabledAndItemStronglyReachableReturnsItem() {
+        String item = "val1";
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList(item));
+        cache.enableWeakValues();
+
+        Optional<String> result = cache.get("val1");
+
+        assertThat(result).contains(item);
+        assertThat(cache.isFullyPopulated()).isTrue();
+    }
+
+    @Test
+    public void isFullyPopulatedWhenWeakValueReclaimedReturnsFalse() {
+        Cache<StringBuilder> cache = new Cache<>(StringBuilder::toString);
+        cache.enableWeakValues();
+        cache.setAll(Arrays.asList(new StringBuilder("val1"), new StringBuilder("val2")));
+        cache.reclaim("val1");
+        cache.reclaim("val2");
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.get("val1")).isEmpty();
+        assertThat(cache.contains("val2")).isFalse();
+    }
+
+    @Test
+    public void isFullyPopulatedWhenSoftValueReclaimedReturnsFalse() {
+        Cache<StringBuilder> cache = new Cache<>(StringBuilder::toString);
+        cache.enableSoftValues();
+        cache.setAll(Arrays.asList(new StringBuilder("val1"), new StringBuilder("val2")));
+        cache.reclaim("val1");
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.get("val1")).isEmpty();
+        assertThat(cache.contains("val2")).isTrue();
+    }
+
+    @Test
+    public void addAfterWeakValueReclaimedReplacesReclaimedItem() {
+        Cache<StringBuilder> cache = new Cache<>(StringBuilder::toString);
+        cache.enableWeakValues();
+        StringBuilder item = new StringBuilder("val1");
+        cache.add(new StringBuilder("val1"));
+        cache.reclaim("val1");
+
+        cache.add(item);
+
+        assertThat(cache.get("val1")).contains(item);
+    }
+
+    @Test
+    public void enableSoftValuesWhenIndexRegisteredThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addIndex("length", String::length);
+
+        assertThrows(IllegalStateException.class, cache::enableSoftValues);
+    }
+
+    @Test
+    public void addIndexWhenSoftValuesEnabledThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableSoftValues();
+
+        assertThrows(IllegalStateException.class, () -> cache.addIndex("length", String::length));
+    }
+
+    @Test
+    public void enableWeakValuesWhenSoftValuesEnabledThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableSoftValues();
+
+        assertThrows(IllegalStateException.class, cache::enableWeakValues);
+    }
+
+    @Test
+    public void setAllWhenInterningEnabledStoresCanonicalInstances() {
+        Cache<String> cache = new Cache<>(value -> value);
+        String canonical = new String("val1");
+        cache.enableInterning(value -> value.equals(canonical) ? canonical : value);
+
+        cache.setAll(Arrays.asList(new String("val1"), "val2"));
+
+        assertThat(cache.get("val1").get()).isSameAs(canonical);
+    }
+
+    @Test
+    public void addWhenInterningEnabledStoresCanonicalInstance() {
+        Cache<String> cache = new Cache<>(value -> value);
+        WeakInterner<String> interner = new WeakInterner<>();
+        String canonical = interner.intern(new String("val1"));
+        cache.enableInterning(interner);
+
+        cache.add(new String("val1"));
+
+        assertThat(cache.get("val1").get()).isSameAs(canonical);
+    }
+
+    @Test
+    public void updateWhenInterningEnabledStoresCanonicalInstance() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        WeakInterner<String> interner = new WeakInterner<>();
+        String canonical = interner.intern(new String("val1"));
+        cache.enableInterning(interner);
+
+        cache.update(new String("val1"));
+
+        assertThat(cache.get("val1").get()).isSameAs(canonical);
+    }
+
+    @Test
+    public void compressUnaccessedCompressesOnlyUnaccessedItems() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        cache.get("val1");
+        List<String> encoded = new ArrayList<>();
+        DeflateCodec<String> deflateCodec = new DeflateCodec<>();
+
+        cache.compressUnaccessed(1000, new ValueCodec<String>() {
+            @Override
+            public byte[] encode(String item) {
+                encoded.add(item);
+                return deflateCodec.encode(item);
+            }
+
+            @Override
+            public String decode(byte[] data) {
+                return deflateCodec.decode(data);
+            }
+        });
+
+        assertThat(encoded).containsExactly("val2");
+    }
+
+    @Test
+    public void getWhenItemCompressedReturnsItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Collections.singletonList("val1"));
+        cache.compressUnaccessed(0, new DeflateCodec<>());
+
+        Optional<String> result = cache.get("val1");
+
+        assertThat(result).contains("val1");
+    }
+
+    @Test
+    public void detachWhenItemCompressedReturnsPlainItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Collections.singletonList("val1"));
+        cache.compressUnaccessed(0, new DeflateCodec<>());
+
+        Optional<CachedItem<String>> result = cache.detach("val1");
+
+        assertThat(result.map(CachedItem::isHeld)).contains(false);
+        assertThat(result.map(CachedItem::getItem)).contains("val1");
+    }
+
+    @Test
+    public void detachWhenSoftValuesEnabledReturnsPlainItem() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableSoftValues();
+
+        Optional<CachedItem<String>> result = cache.detach("val1");
+
+        assertThat(result.map(CachedItem::isHeld)).contains(false);
+        assertThat(result.map(CachedItem::getItem)).contains("val1");
+    }
+
+    @Test
+    public void allWhenItemsCompressedReturnsItems() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+
+        cache.compressUnaccessed(0, new DeflateCodec<>());
+
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("val1", "val2");
+    }
+
+    @Test
+    public void getWithTimeoutWhenOtherItemAddedBeforeRequestedItemReturnsRequestedItem() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        new Timer().schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cache.add("val1");
+            }
+        }, 10);
+        new Timer().schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cache.add("val2");
+            }
+        }, 50);
+
+        Optional<String> result = cache.get("val2", 1000);
+
+        assertThat(result).contains("val2");
+    }
+
+    @Test
+    public void allWithTimeoutWhenItemAddedBeforePopulatedReturnsAllItems() throws PollingTimeout {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        new Timer().schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cache.add("val1");
+            }
+        }, 10);
+        new Timer().schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cache.setAll(Arrays.asList("val1", "val2"));
+            }
+        }, 50);
+
+        Collection<String> result = cache.all(1000);
+
+        assertThat(result).containsExactlyInAnyOrder("val1", "val2");
+    }
+
+    @Test
+    public void evictWithListenerReportsDowngradedAndEvictedEvents() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Collections.singletonList("val1"));
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.evict(0);
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.DOWNGRADED);
+        assertThat(events.get(1).getType()).isEqualTo(CacheEvent.Type.EVICTED);
+        assertThat(events.get(1).getId()).isEqualTo("val1");
+    }
+
+    @Test
+    public void evictAllWithListenerReportsEvictedEventWithoutId() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.evictAll();
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.EVICTED);
+        assertThat(events.get(0).getId()).isNull();
+    }
+
+    @Test
+    public void setAllWithListenerReportsRepopulatedEvent() {
+        Cache<String> cache = new Cache<>(value -> value);
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        cache.setAll(Arrays.asList("val1", "val2"));
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.REPOPULATED);
+    }
+
+    @Test
+    public void deleteWithListenerWhenItemMissingFromFullyPopulatedCacheReportsDowngradedEvent() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache.addListener(events::add);
+
+        assertThrows(IllegalStateException.class, () -> cache.delete("val3"));
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(CacheEvent.Type.DOWNGRADED);
+    }
+
+    @Test
+    public void deleteWithRemovalListenerReportsExplicitRemoval() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        cache.addRemovalListener(removals::addAll, Runnable::run);
+
+        cache.delete("val1");
+
+        assertThat(removals).hasSize(1);
+        assertThat(removals.get(0).getId()).isEqualTo("val1");
+        assertThat(removals.get(0).getItem()).contains("val1");
+        assertThat(removals.get(0).getCause()).isEqualTo(RemovalCause.EXPLICIT);
+    }
+
+    @Test
+    public void updateWithRemovalListenerReportsReplacedRemoval() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        cache.addRemovalListener(removals::addAll, Runnable::run);
+
+        cache.update("val1");
+
+        assertThat(removals).hasSize(1);
+        assertThat(removals.get(0).getCause()).isEqualTo(RemovalCause.REPLACED);
+    }
+
+    @Test
+    public void evictUnaccessedWithRemovalListenerReportsExpiredAccessedRemovals() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2"));
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        cache.addRemovalListener(removals::addAll, Runnable::run);
+
+        cache.evictUnaccessed(1000);
+
+        assertThat(removals).hasSize(2);
+        assertThat(removals.stream().map(RemovalNotification::getCause).collect(Collectors.toList())).containsExactly(RemovalCause.EXPIRED_ACCESSED, RemovalCause.EXPIRED_ACCESSED);
+    }
+
+    @Test
+    public void evictAllWithRemovalListenerReportsResetRemovals() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        cache.addRemovalListener(removals::addAll, Runnable::run);
+
+        cache.evictAll();
+
+        assertThat(removals).hasSize(2);
+        assertThat(removals.stream().map(RemovalNotification::getCause).collect(Collectors.toList())).containsExactly(RemovalCause.RESET, RemovalCause.RESET);
+    }
+
+    @Test
+    public void addWhenWeightLimitExceededWithRemovalListenerReportsSizeRemoval() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("aaa"));
+        cache.enableWeightLimit(3, String::length);
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        cache.addRemovalListener(removals::addAll, Runnable::run);
+
+        cache.add("bbb");
+
+        assertThat(removals).hasSize(1);
+        assertThat(removals.get(0).getCause()).isEqualTo(RemovalCause.SIZE);
+    }
+
+    @Test
+    public void deleteWithRemovedRemovalListenerReportsNothing() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        List<RemovalNotification<String>> removals = new ArrayList<>();
+        RemovalListener<String> listener = removals::addAll;
+        cache.addRemovalListener(listener, Runnable::run);
+        cache.removeRemovalListener(listener);
+
+        cache.delete("val1");
+
+        assertThat(removals).isEmpty();
+    }
+
+    @Test
+    public void allWhenRepopulatedConcurrentlyReturnsCompleteItems() throws InterruptedException {
+        List<String> items = new ArrayList<>();
+        for (int item = 0; item < 1000; item ++) {
+            items.add("val" + item);
+        }
+        Cache<String> cache = new Cache<>(value -> value, items);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            for (int read = 0; read < 200; read ++) {
+                sizes.add(cache.all().size());
+                sizes.add(cache.size());
+            }
+        });
+
+        reader.start();
+        for (int write = 0; write < 200; write ++) {
+            cache.setAll(items);
+        }
+        reader.join();
+
+        assertThat(sizes).hasSize(400);
+        assertThat(new HashSet<>(sizes)).containsExactly(1000);
+    }
+
+    @Test
+    public void getWhenItemUpdatedConcurrentlyReturnsItem() throws InterruptedException {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:0"));
+        List<Optional<String>> results = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            for (int read = 0; read < 1000; read ++) {
+                results.add(cache.get("val1"));
+            }
+        });
+
+        reader.start();
+        for (int write = 1; write <= 1000; write ++) {
+            cache.update("val1:" + write);
+        }
+        reader.join();
+
+        assertThat(results).hasSize(1000);
+        assertThat(results).doesNotContain(Optional.empty());
+        assertThat(cache.get("val1")).contains("val1:1000");
+    }
+
+    @Test
+    public void evictUnaccessedWhenAccessNotSampledRemovesAccessedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableSampledAccessRecording(Integer.MAX_VALUE);
+        cache.add("val1");
+        cache.get("val1");
+
+        cache.evictUnaccessed(1000);
+
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void evictUnaccessedWhenEveryAccessSampledKeepsAccessedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableSampledAccessRecording(1);
+        cache.add("val1");
+        cache.get("val1");
+
+        cache.evictUnaccessed(1000);
+
+        assertThat(cache.contains("val1")).isTrue();
+    }
+
+    @Test
+    public void evictUnaccessedWhenAccessBufferedKeepsAccessedItem() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value);
+        cache.enableBufferedAccessRecording(16);
+        cache.add("val1");
+        cache.add("val2");
+        cache.get("val1");
+
+        cache.evictUnaccessed(1000);
+
+        assertThat(cache.contains("val1")).isTrue();
+        assertThat(cache.contains("val2")).isFalse();
+    }
+
+    @Test
+    public void getWhenAccessBufferFullKeepsRecordingAccesses() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2", "val3"));
+        cache.enableBufferedAccessRecording(1);
+
+        cache.get("val1");
+        cache.get("val2");
+        cache.get("val3");
+        cache.evictUnaccessed(60000);
+
+        assertThat(cache.contains("val2")).isTrue();
+        assertThat(cache.contains("val3")).isTrue();
+    }
+
+    @Test
+    public void enableSampledAccessRecordingWhenSampleRateNotPositiveThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.enableSampledAccessRecording(0));
+    }
+
+    @Test
+    public void enableBufferedAccessRecordingWhenBufferSizeNotPositiveThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.enableBufferedAccessRecording(0));
+    }
+
+    @Test
+    public void enableBufferedAccessRecordingWhenSampledAccessRecordingEnabledThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableSampledAccessRecording(10);
+
+        assertThrows(IllegalStateException.class, () -> cache.enableBufferedAccessRecording(16));
+    }
+
+    @Test
+    public void getItemVersionWhenItemAddedReturnsFirstVersion() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.add("val1");
+
+        OptionalLong result = cache.getItemVersion("val1");
+
+        assertThat(result).hasValue(1);
+    }
+
+    @Test
+    public void getItemVersionWhenItemUpdatedReturnsNextVersion() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.update("val1");
+
+        OptionalLong result = cache.getItemVersion("val1");
+
+        assertThat(result).hasValue(2);
+    }
+
+    @Test
+    public void getItemVersionWhenItemNotCachedReturnsEmpty() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        OptionalLong result = cache.getItemVersion("val1");
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    public void putIfAbsentWhenItemNotCachedAddsItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4));
+
+        Optional<String> result = cache.putIfAbsent("val1:new");
+
+        assertThat(result).isEmpty();
+        assertThat(cache.get("val1")).contains("val1:new");
+    }
+
+    @Test
+    public void putIfAbsentWhenItemCachedReturnsCachedItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:old"));
+
+        Optional<String> result = cache.putIfAbsent("val1:new");
+
+        assertThat(result).contains("val1:old");
+        assertThat(cache.get("val1")).contains("val1:old");
+    }
+
+    @Test
+    public void replaceWhenVersionMatchesReplacesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:old"));
+
+        boolean result = cache.replace("val1:new", 1);
+
+        assertThat(result).isTrue();
+        assertThat(cache.get("val1")).contains("val1:new");
+        assertThat(cache.getItemVersion("val1")).hasValue(2);
+    }
+
+    @Test
+    public void replaceWhenVersionDoesNotMatchLeavesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:old"));
+        cache.update("val1:other");
+
+        boolean result = cache.replace("val1:new", 1);
+
+        assertThat(result).isFalse();
+        assertThat(cache.get("val1")).contains("val1:other");
+    }
+
+    @Test
+    public void replaceWhenItemNotCachedAddsNothing() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4));
+
+        boolean result = cache.replace("val1:new", 1);
+
+        assertThat(result).isFalse();
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void replaceWhenItemDeletedAndAddedAgainLeavesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:old"));
+        long version = cache.getItemVersion("val1").getAsLong();
+        cache.delete("val1");
+        cache.add("val1:other");
+
+        boolean result = cache.replace("val1:new", version);
+
+        assertThat(result).isFalse();
+        assertThat(cache.get("val1")).contains("val1:other");
+    }
+
+    @Test
+    public void replaceWhenCacheRepopulatedLeavesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:old"));
+        long version = cache.getItemVersion("val1").getAsLong();
+        cache.setAll(Collections.singletonList("val1:other"));
+
+        boolean result = cache.replace("val1:new", version);
+
+        assertThat(result).isFalse();
+        assertThat(cache.get("val1")).contains("val1:other");
+    }
+
+    @Test
+    public void updateIfNewerWhenItemNewerUpdatesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:1"));
+
+        boolean result = cache.updateIfNewer("val1:2", value -> value.substring(5));
+
+        assertThat(result).isTrue();
+        assertThat(cache.get("val1")).contains("val1:2");
+    }
+
+    @Test
+    public void updateIfNewerWhenItemOlderLeavesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:2"));
+
+        boolean result = cache.updateIfNewer("val1:1", value -> value.substring(5));
+
+        assertThat(result).isFalse();
+        assertThat(cache.get("val1")).contains("val1:2");
+    }
+
+    @Test
+    public void updateIfNewerWhenNotFullyPopulatedAndItemNotCachedAddsItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4));
+
+        boolean result = cache.updateIfNewer("val1:1", value -> value.substring(5));
+
+        assertThat(result).isTrue();
+        assertThat(cache.get("val1")).contains("val1:1");
+    }
+
+    @Test
+    public void updateIfNewerWhenFullyPopulatedAndItemNotCachedLeavesStateAsFullyPopulated() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.emptyList());
+
+        boolean result = cache.updateIfNewer("val1:1", value -> value.substring(5));
+
+        assertThat(result).isFalse();
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void computeWhenItemCachedStoresComputedItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:1"));
+
+        Optional<String> result = cache.compute("val1", item -> item.map(value -> value + "1"));
+
+        assertThat(result).contains("val1:11");
+        assertThat(cache.get("val1")).contains("val1:11");
+        assertThat(cache.getItemVersion("val1")).hasValue(2);
+    }
+
+    @Test
+    public void computeWhenItemNotCachedAddsComputedItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.emptyList());
+
+        cache.compute("val1", item -> Optional.of(item.orElse("val1:0")));
+
+        assertThat(cache.get("val1")).contains("val1:0");
+        assertThat(cache.isFullyPopulated()).isTrue();
+    }
+
+    @Test
+    public void computeWhenEmptyComputedRemovesItem() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:1"));
+
+        Optional<String> result = cache.compute("val1", item -> Optional.empty());
+
+        assertThat(result).isEmpty();
+        assertThat(cache.contains("val1")).isFalse();
+        assertThat(cache.isFullyPopulated()).isTrue();
+    }
+
+    @Test
+    public void computeWhenComputedItemHasOtherIdThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value.substring(0, 4), Collections.singletonList("val1:1"));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.compute("val1", item -> Optional.of("val2:1")));
+        assertThat(cache.get("val1")).contains("val1:1");
+    }
+
+    @Test
+    public void computeWhenCalledConcurrentlyAppliesEveryComputation() throws InterruptedException {
+        Cache<Integer> cache = new Cache<>(value -> 1, Collections.singletonList(0));
+        Runnable increments = () -> {
+            for (int increment = 0; increment < 1000; increment ++) {
+                cache.compute(1, item -> item.map(value -> value + 1));
+            }
+        };
+        Thread other = new Thread(increments);
+
+        other.start();
+        increments.run();
+        other.join();
+
+        assertThat(cache.get(1)).contains(2000);
+    }
+
+    @Test
+    public void getStatsWhenStatsNotEnabledReturnsItemCountsOnly() {
+        Cache<String> cache = new Cache<>(value -> value, Arrays.asList("val1", "val2"));
+        cache.get("val1");
+
+        CacheStats result = cache.getStats();
+
+        assertThat(result.isFullyPopulated()).isTrue();
+        assertThat(result.getFullItemCount()).isEqualTo(2);
+        assertThat(result.getPartialItemCount()).isEqualTo(0);
+        assertThat(result.getHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getStatsWhenStatsEnabledReturnsHitsAndMisses() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableStats();
+        cache.add("val1");
+        cache.get("val1");
+        cache.get("val1");
+        cache.get("val2");
+
+        CacheStats result = cache.getStats();
+
+        assertThat(result.getPartialItemCount()).isEqualTo(1);
+        assertThat(result.getHitCount()).isEqualTo(2);
+        assertThat(result.getMissCount()).isEqualTo(1);
+        assertThat(result.getHitRatio()).isEqualTo(2.0 / 3);
+        assertThat(result.getTotalGetNanos()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void getStatsWhenStatsEnabledReturnsEvictionsButNotDeletions() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L, 1000000003L);
+        Cache<String> cache = new Cache<>(timestampGenerator, value -> value, Arrays.asList("val1", "val2", "val3"));
+        cache.enableStats();
+        cache.delete("val1");
+
+        cache.evict(-1000);
+
+        assertThat(cache.getStats().getEvictionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getStatsWhenGetTimesOutReturnsWaitAndTimeout() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableStats();
+
+        cache.get("val1", 1);
+
+        CacheStats result = cache.getStats();
+        assertThat(result.getWaitCount()).isEqualTo(1);
+        assertThat(result.getTimeoutCount()).isEqualTo(1);
+        assertThat(result.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getStatsWhenGetFindsItemWithoutWaitingReturnsNoWait() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableStats();
+
+        cache.get("val1", 1);
+
+        assertThat(cache.getStats().getWaitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void topKeysReturnsMostRequestedIdsWhetherFoundOrNot() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.singletonList("val1"));
+        cache.enableHotKeyTracking(10);
+        cache.get("val1");
+        cache.get("val2");
+        cache.get("val2", 1);
+
+        List<HotKey> result = cache.topKeys(2);
+
+        assertThat(result.stream().map(HotKey::getId).collect(Collectors.toList())).containsExactly("val2", "val1");
+    }
+
+    @Test
+    public void topKeysWhenHotKeyTrackingNotEnabledThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalStateException.class, () -> cache.topKeys(10));
+    }
+
+    @Test
+    public void enableHotKeyTrackingWhenAlreadyEnabledThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.enableHotKeyTracking(10);
+
+        assertThrows(IllegalStateException.class, () -> cache.enableHotKeyTracking(10));
+    }
 }
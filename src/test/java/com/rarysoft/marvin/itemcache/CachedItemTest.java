@@ -163,4 +163,29 @@ public class CachedItemTest {
 
         assertThat(item.getModified()).isNull();
     }
+
+    @Test
+    public void constructorReturnsCachedItemWithFirstVersion() {
+        CachedItem<String> result = new CachedItem<>("val", 12345L);
+
+        assertThat(result.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void accessedReturnsCachedItemWithSameVersion() {
+        CachedItem<String> item = new CachedItem<>("val", 12345L);
+
+        CachedItem<String> result = item.accessed(23456L);
+
+        assertThat(result.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void modifiedReturnsCachedItemWithNextVersion() {
+        CachedItem<String> item = new CachedItem<>("val1", 12345L).modified("val2", 23456L);
+
+        CachedItem<String> result = item.modified("val3", 34567L);
+
+        assertThat(result.getVersion()).isEqualTo(3L);
+    }
 }
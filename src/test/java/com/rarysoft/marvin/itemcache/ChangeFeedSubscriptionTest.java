@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChangeFeedSubscriptionTest {
+    private final Cache<String> cache = new Cache<>(value -> value);
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    @Test
+    public void subscribeWithEmptyBufferThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> this.cache.subscribe(this.subscriber, 0, Runnable::run));
+    }
+
+    @Test
+    public void subscribeCallsOnSubscribe() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+
+        assertThat(this.subscriber.subscription).isNotNull();
+    }
+
+    @Test
+    public void addWithoutRequestDeliversNothing() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+
+        this.cache.add("val1");
+
+        assertThat(this.subscriber.events).isEmpty();
+    }
+
+    @Test
+    public void requestDeliversBufferedChangesUpToRequestedCount() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+        this.cache.add("val1");
+        this.cache.add("val2");
+        this.cache.add("val3");
+
+        this.subscriber.subscription.request(2);
+
+        assertThat(this.subscriber.ids()).containsExactly("val1", "val2");
+    }
+
+    @Test
+    public void addAfterRequestDeliversChange() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+        this.subscriber.subscription.request(Long.MAX_VALUE);
+
+        this.cache.add("val1");
+        this.cache.delete("val1");
+
+        assertThat(this.subscriber.events.stream().map(CacheEvent::getType).collect(Collectors.toList()))
+                .containsExactly(CacheEvent.Type.ADDED, CacheEvent.Type.DELETED);
+    }
+
+    @Test
+    public void addWhenBufferFullFailsSubscriber() {
+        this.cache.subscribe(this.subscriber, 2, Runnable::run);
+        this.cache.add("val1");
+        this.cache.add("val2");
+
+        this.cache.add("val3");
+
+        assertThat(this.subscriber.error).isInstanceOf(IllegalStateException.class);
+        this.subscriber.subscription.request(10);
+        assertThat(this.subscriber.events).isEmpty();
+    }
+
+    @Test
+    public void requestWithNonPositiveCountFailsSubscriber() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+
+        this.subscriber.subscription.request(0);
+
+        assertThat(this.subscriber.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void cancelStopsDelivery() {
+        this.cache.subscribe(this.subscriber, 10, Runnable::run);
+        this.subscriber.subscription.request(10);
+
+        this.subscriber.subscription.cancel();
+        this.cache.add("val1");
+
+        assertThat(this.subscriber.events).isEmpty();
+    }
+
+    @Test
+    public void onNextThrowingCancelsSubscription() {
+        List<CacheEvent<String>> delivered = new ArrayList<>();
+        this.cache.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(ChangeSubscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(CacheEvent<String> event) {
+                delivered.add(event);
+                throw new IllegalStateException();
+            }
+        }, 10, Runnable::run);
+        this.cache.add("val1");
+
+        this.cache.add("val2");
+
+        assertThat(delivered).hasSize(1);
+    }
+
+    private static class RecordingSubscriber implements ChangeSubscriber<String> {
+        private final List<CacheEvent<String>> events = new ArrayList<>();
+        private ChangeSubscription subscription;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(ChangeSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(CacheEvent<String> event) {
+            this.events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        private List<Object> ids() {
+            return this.events.stream().map(CacheEvent::getId).collect(Collectors.toList());
+        }
+    }
+}
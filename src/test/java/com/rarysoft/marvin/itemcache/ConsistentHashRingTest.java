@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConsistentHashRingTest {
+    @Test
+    public void nodeForWhenEmptyThrowsIllegalStateException() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(10);
+
+        assertThrows(IllegalStateException.class, () -> ring.nodeFor("key"));
+    }
+
+    @Test
+    public void withNodeWithExistingNameThrowsIllegalArgumentException() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(10).withNode("a", "node-a");
+
+        assertThrows(IllegalArgumentException.class, () -> ring.withNode("a", "node-b"));
+    }
+
+    @Test
+    public void withoutNodeWithUnknownNameThrowsIllegalArgumentException() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(10);
+
+        assertThrows(IllegalArgumentException.class, () -> ring.withoutNode("a"));
+    }
+
+    @Test
+    public void nodeForWithSingleNodeReturnsNode() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(10).withNode("a", "node-a");
+
+        assertThat(ring.nodeFor("key")).isEqualTo("node-a");
+    }
+
+    @Test
+    public void nodeForSpreadsKeysAcrossNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(100)
+                .withNode("a", "node-a")
+                .withNode("b", "node-b")
+                .withNode("c", "node-c");
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < 30000; i ++) {
+            counts.merge(ring.nodeFor("key" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts.values().stream().mapToInt(Integer::intValue).min().orElse(0)).isGreaterThan(6000);
+    }
+
+    @Test
+    public void withoutNodeOnlyMovesKeysOfRemovedNode() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(100)
+                .withNode("a", "node-a")
+                .withNode("b", "node-b")
+                .withNode("c", "node-c");
+        ConsistentHashRing<String> reduced = ring.withoutNode("c");
+        int moved = 0;
+
+        for (int i = 0; i < 10000; i ++) {
+            String before = ring.nodeFor("key" + i);
+            if (! before.equals("node-c") && ! before.equals(reduced.nodeFor("key" + i))) {
+                moved ++;
+            }
+        }
+
+        assertThat(moved).isEqualTo(0);
+    }
+}
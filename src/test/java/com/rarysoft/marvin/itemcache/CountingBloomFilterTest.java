@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CountingBloomFilterTest {
+    @Test
+    public void constructorWithNonPositiveExpectedItemsThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+    }
+
+    @Test
+    public void constructorWithFalsePositiveRateOfOneThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(100, 1));
+    }
+
+    @Test
+    public void mightContainWhenEmptyReturnsFalse() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+
+        assertThat(filter.mightContain("val1")).isFalse();
+    }
+
+    @Test
+    public void mightContainWhenAddedReturnsTrue() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("val1");
+
+        assertThat(filter.mightContain("val1")).isTrue();
+    }
+
+    @Test
+    public void mightContainWhenAddedAndRemovedReturnsFalse() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("val1");
+        filter.remove("val1");
+
+        assertThat(filter.mightContain("val1")).isFalse();
+    }
+
+    @Test
+    public void mightContainWhenAddedTwiceAndRemovedOnceReturnsTrue() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("val1");
+        filter.add("val1");
+        filter.remove("val1");
+
+        assertThat(filter.mightContain("val1")).isTrue();
+    }
+
+    @Test
+    public void mightContainWhenOtherItemRemovedReturnsTrue() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        for (int i = 0; i < 100; i ++) {
+            filter.add(i);
+        }
+        for (int i = 1; i < 100; i ++) {
+            filter.remove(i);
+        }
+
+        assertThat(filter.mightContain(0)).isTrue();
+    }
+
+    @Test
+    public void mightContainWhenClearedReturnsFalse() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("val1");
+        filter.clear();
+
+        assertThat(filter.mightContain("val1")).isFalse();
+    }
+
+    @Test
+    public void mightContainWhenFilledToExpectedItemsKeepsFalsePositivesNearRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i ++) {
+            filter.add("present" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i ++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives ++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DeflateCodecTest {
+    @Test
+    public void constructWithInvalidLevelThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new DeflateCodec<String>(Deflater.BEST_COMPRESSION + 1));
+    }
+
+    @Test
+    public void decodeWithEncodedItemReturnsEqualItem() {
+        DeflateCodec<String> codec = new DeflateCodec<>();
+
+        String result = codec.decode(codec.encode("val1"));
+
+        assertThat(result).isEqualTo("val1");
+    }
+
+    @Test
+    public void encodeWithRepetitiveItemReturnsFewerBytes() {
+        DeflateCodec<String> codec = new DeflateCodec<>(Deflater.BEST_COMPRESSION);
+        String item = String.join(",", Collections.nCopies(1000, "{\"name\":\"widget\",\"enabled\":true}"));
+
+        byte[] result = codec.encode(item);
+
+        assertThat(result.length).isLessThan(item.length() / 10);
+    }
+}
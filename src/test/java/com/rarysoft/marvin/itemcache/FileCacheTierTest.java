@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileCacheTierTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void getWhenNotStoredReturnsEmpty() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+
+        Optional<CachedItem<String>> result = tier.get("val1");
+
+        assertThat(result).isNotNull().isEmpty();
+    }
+
+    @Test
+    public void getWhenStoredReturnsItem() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L));
+
+        Optional<CachedItem<String>> result = tier.get("id1");
+
+        assertThat(result.map(CachedItem::getItem)).isNotNull().contains("val1");
+    }
+
+    @Test
+    public void getWhenStoredPreservesTimestamps() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L).accessed(23456L).modified("val1", 34567L));
+
+        CachedItem<String> result = tier.get("id1").orElseThrow(IllegalStateException::new);
+
+        assertThat(result.getCreated()).isEqualTo(12345L);
+        assertThat(result.getAccessed()).isEqualTo(23456L);
+        assertThat(result.getModified()).isEqualTo(34567L);
+    }
+
+    @Test
+    public void putWhenAlreadyStoredReplacesItem() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L));
+        tier.put("id1", new CachedItem<>("val2", 12345L));
+
+        Optional<CachedItem<String>> result = tier.get("id1");
+
+        assertThat(result.map(CachedItem::getItem)).isNotNull().contains("val2");
+    }
+
+    @Test
+    public void putWhenItemCannotBeWrittenLeavesNoFiles() throws IOException {
+        FileCacheTier<Serializable> tier = new FileCacheTier<>(this.directory);
+        ArrayList<Object> unserializable = new ArrayList<>(Collections.singletonList(new Object()));
+
+        assertThrows(UncheckedIOException.class, () -> tier.put("id1", new CachedItem<>(unserializable, 12345L)));
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files.count()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void containsWhenStoredReturnsTrue() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L));
+
+        assertThat(tier.contains("id1")).isTrue();
+    }
+
+    @Test
+    public void containsWhenRemovedReturnsFalse() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L));
+        tier.remove("id1");
+
+        assertThat(tier.contains("id1")).isFalse();
+    }
+
+    @Test
+    public void containsWhenClearedReturnsFalse() {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        tier.put("id1", new CachedItem<>("val1", 12345L));
+        tier.clear();
+
+        assertThat(tier.contains("id1")).isFalse();
+    }
+
+    @Test
+    public void clearRemovesLeftoverTemporaryFiles() throws IOException {
+        FileCacheTier<String> tier = new FileCacheTier<>(this.directory);
+        Files.createTempFile(this.directory, null, ".tmp");
+
+        tier.clear();
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files.count()).isEqualTo(0);
+        }
+    }
+}
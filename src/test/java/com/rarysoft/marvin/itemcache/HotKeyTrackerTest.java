@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HotKeyTrackerTest {
+    @Test
+    public void constructorWhenCapacityNotPositiveThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new HotKeyTracker(0));
+    }
+
+    @Test
+    public void topReturnsKeysFromMostToLeastRequested() {
+        HotKeyTracker tracker = new HotKeyTracker(10);
+        record(tracker, "val1", 3);
+        record(tracker, "val2", 5);
+        record(tracker, "val3", 1);
+
+        List<HotKey> result = tracker.top(10);
+
+        assertThat(result.stream().map(HotKey::getId).collect(Collectors.toList())).containsExactly("val2", "val1", "val3");
+        assertThat(result.get(0).getCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void topReturnsNoMoreThanRequestedCount() {
+        HotKeyTracker tracker = new HotKeyTracker(10);
+        record(tracker, "val1", 3);
+        record(tracker, "val2", 5);
+
+        List<HotKey> result = tracker.top(1);
+
+        assertThat(result).hasSize(1);
+    }
+
+    @Test
+    public void topWhenCapacityExceededKeepsMostRequestedKeys() {
+        HotKeyTracker tracker = new HotKeyTracker(2);
+        for (int key = 0; key < 100; key ++) {
+            record(tracker, "cold" + key, 1);
+        }
+        record(tracker, "hot1", 50);
+        record(tracker, "hot2", 40);
+
+        List<HotKey> result = tracker.top(10);
+
+        assertThat(result.stream().map(HotKey::getId).collect(Collectors.toList())).containsExactly("hot1", "hot2");
+    }
+
+    @Test
+    public void recordAfterResetIntervalHalvesCounts() {
+        HotKeyTracker tracker = new HotKeyTracker(1);
+        record(tracker, "val1", 64 * 32 * 10);
+
+        List<HotKey> result = tracker.top(1);
+
+        assertThat(result.get(0).getCount()).isEqualTo(64 * 32 * 5);
+    }
+
+    @Test
+    public void recordAfterResetIntervalSpreadOverThreadsHalvesCounts() throws InterruptedException {
+        HotKeyTracker tracker = new HotKeyTracker(1);
+        Thread first = new Thread(() -> record(tracker, "val1", 64 * 32 * 5));
+        Thread second = new Thread(() -> record(tracker, "val1", 64 * 32 * 5));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        tracker.record("val1");
+
+        assertThat(tracker.top(1).get(0).getCount()).isLessThan(64 * 32 * 10);
+    }
+
+    @Test
+    public void recordAfterResetIntervalSpreadOverShortLivedThreadsHalvesCounts() throws InterruptedException {
+        HotKeyTracker tracker = new HotKeyTracker(1);
+        for (int thread = 0; thread < 64 * 32; thread ++) {
+            Thread recorder = new Thread(() -> record(tracker, "val1", 10));
+            recorder.start();
+            recorder.join();
+        }
+
+        List<HotKey> result = tracker.top(1);
+
+        assertThat(result.get(0).getCount()).isEqualTo(64 * 32 * 5);
+    }
+
+    @Test
+    public void constructorWithLargeCapacityTracksKeys() {
+        HotKeyTracker tracker = new HotKeyTracker(Integer.MAX_VALUE);
+        record(tracker, "val1", 2);
+
+        List<HotKey> result = tracker.top(1);
+
+        assertThat(result.get(0).getCount()).isEqualTo(2);
+    }
+
+    private static void record(HotKeyTracker tracker, String id, int times) {
+        for (int time = 0; time < times; time ++) {
+            tracker.record(id);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InvalidationBusTest {
+    private final InvalidationTransport transport = new InJvmInvalidationTransport();
+
+    @Test
+    public void updateOnOneNodeEvictsItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value);
+        cache1.add("val1");
+        cache2.add("val1");
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.update("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.contains("val1")).isFalse();
+        }
+    }
+
+    @Test
+    public void deleteOnOneNodeEvictsItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value);
+        cache2.add("val1");
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.delete("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.contains("val1")).isFalse();
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeDoesNotEvictItemOnSameNode() {
+        Cache<String> cache = new Cache<>(() -> 1000L, value -> value);
+        try (InvalidationBus<String> bus = new InvalidationBus<>(cache, this.transport, 10, 60000)) {
+            cache.add("val1");
+
+            bus.flush();
+
+            assertThat(cache.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeBeforeItemWrittenOnOtherNodeKeepsItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 2000L, value -> value);
+        cache2.add("val1");
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.delete("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeWhenOtherNodeFullyPopulatedLeavesOtherNodeNotFullyPopulated() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value, Collections.singletonList("val1"));
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.add("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.isFullyPopulated()).isFalse();
+        }
+    }
+
+    @Test
+    public void addOnOneNodeWhenOtherNodeFullyPopulatedLeavesOtherNodeNotFullyPopulated() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value, Collections.singletonList("val1"));
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.add("val2");
+
+            bus1.flush();
+
+            assertThat(cache2.isFullyPopulated()).isFalse();
+            assertThat(cache2.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void addOnOneNodeWhenOtherNodeNotFullyPopulatedLeavesOtherNodeUnchanged() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value);
+        cache2.add("val1");
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            cache1.add("val2");
+
+            bus1.flush();
+
+            assertThat(cache2.contains("val1")).isTrue();
+            assertThat(cache2.contains("val2")).isFalse();
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeWithLoaderReloadsItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value, Collections.singletonList("val1"));
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000, id -> Optional.of((String) id), Runnable::run)) {
+            cache1.add("val2");
+
+            bus1.flush();
+
+            assertThat(cache2.isFullyPopulated()).isTrue();
+            assertThat(cache2.all()).containsExactlyInAnyOrder("val1", "val2");
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeWithLoaderReportsReloadWithoutBroadcastingIt() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value, Collections.singletonList("val1"));
+        List<CacheEvent<String>> events = new ArrayList<>();
+        cache2.addListener(events::add);
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000, id -> Optional.of((String) id), Runnable::run)) {
+            cache1.add("val1");
+            bus1.flush();
+
+            bus2.flush();
+
+            assertThat(events.stream().map(CacheEvent::getType).collect(Collectors.toList())).containsExactly(CacheEvent.Type.RELOADED);
+            assertThat(cache1.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void deleteOnOneNodeWithLoaderRemovesItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value, Arrays.asList("val1", "val2"));
+        try (InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+             InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000, id -> Optional.empty(), Runnable::run)) {
+            cache1.delete("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.all()).containsExactlyInAnyOrder("val2");
+        }
+    }
+
+    @Test
+    public void changeOnOneNodeAfterCloseDoesNotEvictItemOnOtherNode() {
+        Cache<String> cache1 = new Cache<>(() -> 1000L, value -> value);
+        Cache<String> cache2 = new Cache<>(() -> 1000L, value -> value);
+        cache2.add("val1");
+        try (InvalidationBus<String> bus2 = new InvalidationBus<>(cache2, this.transport, 10, 60000)) {
+            InvalidationBus<String> bus1 = new InvalidationBus<>(cache1, this.transport, 10, 60000);
+            bus1.close();
+            cache1.delete("val1");
+
+            bus1.flush();
+
+            assertThat(cache2.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void closeWhileChangeBeingReportedDoesNotFailChange() {
+        Cache<String> cache = new Cache<>(() -> 1000L, value -> value);
+        List<InvalidationBus<String>> buses = new ArrayList<>();
+        cache.addListener(event -> buses.forEach(InvalidationBus::close));
+        buses.add(new InvalidationBus<>(cache, this.transport, 1, 60000));
+
+        cache.add("val1");
+
+        assertThat(cache.contains("val1")).isTrue();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PartitionedCacheTest {
+    private final Cache<String> cache1 = new Cache<>(value -> value);
+    private final Cache<String> cache2 = new Cache<>(value -> value);
+
+    @Test
+    public void getWithNoShardsThrowsIllegalStateException() {
+        PartitionedCache<String> cache = new PartitionedCache<>(value -> value, 10);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("val1"));
+    }
+
+    @Test
+    public void isFullyPopulatedWithNoShardsReturnsFalse() {
+        PartitionedCache<String> cache = new PartitionedCache<>(value -> value, 10);
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void allWithNoShardsThrowsIllegalStateException() {
+        PartitionedCache<String> cache = new PartitionedCache<>(value -> value, 10);
+
+        assertThrows(IllegalStateException.class, cache::all);
+    }
+
+    @Test
+    public void sizeWithNoShardsThrowsIllegalStateException() {
+        PartitionedCache<String> cache = new PartitionedCache<>(value -> value, 10);
+
+        assertThrows(IllegalStateException.class, cache::size);
+    }
+
+    @Test
+    public void getAfterAddReturnsItem() {
+        PartitionedCache<String> cache = this.partitionedCache();
+        cache.add("val1");
+
+        Optional<String> result = cache.get("val1");
+
+        assertThat(result).isNotNull().contains("val1");
+    }
+
+    @Test
+    public void addStoresItemInOnlyOneShard() {
+        PartitionedCache<String> cache = this.partitionedCache();
+
+        cache.add("val1");
+
+        assertThat(this.cache1.contains("val1") ^ this.cache2.contains("val1")).isTrue();
+    }
+
+    @Test
+    public void setAllSpreadsItemsAcrossShards() {
+        PartitionedCache<String> cache = this.partitionedCache();
+
+        cache.setAll(IntStream.range(0, 100).mapToObj(i -> "val" + i).collect(Collectors.toList()));
+
+        assertThat(this.cache1.size()).isGreaterThan(0);
+        assertThat(this.cache2.size()).isGreaterThan(0);
+        assertThat(cache.size()).isEqualTo(100);
+    }
+
+    @Test
+    public void allWhenEveryShardFullyPopulatedReturnsItemsFromEveryShard() {
+        PartitionedCache<String> cache = this.partitionedCache();
+        cache.setAll(Arrays.asList("val1", "val2", "val3", "val4"));
+
+        assertThat(cache.all().collect(Collectors.toList())).containsExactlyInAnyOrder("val1", "val2", "val3", "val4");
+    }
+
+    @Test
+    public void allWhenOneShardNotFullyPopulatedThrowsIllegalStateException() {
+        PartitionedCache<String> cache = this.partitionedCache();
+        cache.setAll(Arrays.asList("val1", "val2", "val3", "val4"));
+        this.cache1.evictAll();
+
+        assertThrows(IllegalStateException.class, cache::all);
+    }
+
+    @Test
+    public void isFullyPopulatedWhenOneShardNotFullyPopulatedReturnsFalse() {
+        PartitionedCache<String> cache = this.partitionedCache();
+        this.cache1.setAll(Arrays.asList("val1", "val2"));
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+    }
+
+    @Test
+    public void deleteRemovesItemFromOwningShard() {
+        PartitionedCache<String> cache = this.partitionedCache();
+        cache.add("val1");
+
+        cache.delete("val1");
+
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    private PartitionedCache<String> partitionedCache() {
+        PartitionedCache<String> cache = new PartitionedCache<>(value -> value, 100);
+        cache.addShard("shard1", new LocalCacheShard<>(this.cache1));
+        cache.addShard("shard2", new LocalCacheShard<>(this.cache2));
+        return cache;
+    }
+}
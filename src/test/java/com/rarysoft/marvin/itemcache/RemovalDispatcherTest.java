@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RemovalDispatcherTest {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<List<RemovalNotification<String>>> batches = new ArrayList<>();
+
+    @Test
+    public void removedSchedulesSingleDeliveryForSeveralRemovals() {
+        RemovalDispatcher<String> dispatcher = new RemovalDispatcher<>(this.batches::add, this.tasks::add);
+
+        dispatcher.removed(removal("val1"));
+        dispatcher.removed(removal("val2"));
+
+        assertThat(this.tasks).hasSize(1);
+        assertThat(this.batches).isEmpty();
+    }
+
+    @Test
+    public void deliveryPassesQueuedRemovalsAsOneBatch() {
+        RemovalDispatcher<String> dispatcher = new RemovalDispatcher<>(this.batches::add, this.tasks::add);
+        dispatcher.removed(removal("val1"));
+        dispatcher.removed(removal("val2"));
+
+        this.tasks.get(0).run();
+
+        assertThat(this.batches).hasSize(1);
+        assertThat(this.batches.get(0).stream().map(RemovalNotification::getId).collect(Collectors.toList())).containsExactly("val1", "val2");
+    }
+
+    @Test
+    public void removedAfterDeliverySchedulesAnotherDelivery() {
+        RemovalDispatcher<String> dispatcher = new RemovalDispatcher<>(this.batches::add, this.tasks::add);
+        dispatcher.removed(removal("val1"));
+        this.tasks.get(0).run();
+
+        dispatcher.removed(removal("val2"));
+
+        assertThat(this.tasks).hasSize(2);
+    }
+
+    @Test
+    public void deliveryWhenListenerThrowsKeepsDelivering() {
+        List<Object> delivered = new ArrayList<>();
+        RemovalDispatcher<String> dispatcher = new RemovalDispatcher<>(removals -> {
+            delivered.add(removals.get(0).getId());
+            throw new IllegalStateException();
+        }, Runnable::run);
+
+        dispatcher.removed(removal("val1"));
+        dispatcher.removed(removal("val2"));
+
+        assertThat(delivered).containsExactly("val1", "val2");
+    }
+
+    @Test
+    public void removedWhenExecutorRejectsKeepsRemovalQueued() {
+        List<Runnable> accepted = new ArrayList<>();
+        boolean[] reject = { true };
+        Executor executor = task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException();
+            }
+            accepted.add(task);
+        };
+        RemovalDispatcher<String> dispatcher = new RemovalDispatcher<>(this.batches::add, executor);
+        dispatcher.removed(removal("val1"));
+        reject[0] = false;
+
+        dispatcher.removed(removal("val2"));
+        accepted.get(0).run();
+
+        assertThat(this.batches.get(0)).hasSize(2);
+    }
+
+    private static RemovalNotification<String> removal(String id) {
+        return new RemovalNotification<>(id, new CachedItem<>(id, 0), RemovalCause.EXPLICIT);
+    }
+}
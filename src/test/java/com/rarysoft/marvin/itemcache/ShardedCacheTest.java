@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardedCacheTest {
+    @Test
+    public void constructWithNoShardsThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedCache<String>(value -> value, 0));
+    }
+
+    @Test
+    public void setAllWithHashShardsStoresAllItems() {
+        ShardedCache<String> cache = new ShardedCache<>(value -> value, 4);
+
+        cache.setAll(IntStream.range(0, 100).mapToObj(i -> "val" + i).collect(Collectors.toList()));
+
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.get("val42")).contains("val42");
+    }
+
+    @Test
+    public void partitionOfWithHashShardsReturnsShardNumber() {
+        ShardedCache<String> cache = new ShardedCache<>(value -> value, 4);
+
+        assertThat(cache.partitionOf("val1")).isIn(0, 1, 2, 3);
+    }
+
+    @Test
+    public void updateWhenItemNotFoundDowngradesOnlyOwningShard() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Arrays.asList("a:1", "a:2", "b:1"));
+
+        assertThrows(IllegalStateException.class, () -> cache.update("a:3"));
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.isFullyPopulated("a")).isFalse();
+        assertThat(cache.isFullyPopulated("b")).isTrue();
+        assertThat(cache.all("b")).containsExactly("b:1");
+    }
+
+    @Test
+    public void setAllForPartitionRestoresFullyPopulatedState() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Arrays.asList("a:1", "a:2", "b:1"));
+        assertThrows(IllegalStateException.class, () -> cache.delete("a:3"));
+
+        cache.setAll("a", Arrays.asList("a:1", "a:2"));
+
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("a:1", "a:2", "b:1");
+    }
+
+    @Test
+    public void setAllForPartitionWithItemOfOtherPartitionThrowsIllegalArgumentException() {
+        ShardedCache<String> cache = this.tenantCache();
+
+        assertThrows(IllegalArgumentException.class, () -> cache.setAll("a", Arrays.asList("a:1", "b:1")));
+    }
+
+    @Test
+    public void setAllForPartitionWhenNotPopulatedLeavesCacheNotFullyPopulated() {
+        ShardedCache<String> cache = this.tenantCache();
+
+        cache.setAll("a", Collections.singletonList("a:1"));
+
+        assertThat(cache.isFullyPopulated("a")).isTrue();
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThrows(IllegalStateException.class, cache::all);
+    }
+
+    @Test
+    public void addForNewPartitionAfterSetAllKeepsCacheFullyPopulated() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Collections.singletonList("a:1"));
+
+        cache.add("c:1");
+
+        assertThat(cache.isFullyPopulated()).isTrue();
+        assertThat(cache.all()).containsExactlyInAnyOrder("a:1", "c:1");
+    }
+
+    @Test
+    public void allForUnknownPartitionAfterSetAllReturnsEmpty() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Collections.singletonList("a:1"));
+
+        assertThat(cache.all("z")).isEmpty();
+    }
+
+    @Test
+    public void setAllEmptiesShardsWithoutItems() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Arrays.asList("a:1", "b:1"));
+
+        cache.setAll(Collections.singletonList("a:1"));
+
+        assertThat(cache.contains("b:1")).isFalse();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictAllLeavesCacheNotFullyPopulated() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Arrays.asList("a:1", "b:1"));
+
+        cache.evictAll();
+
+        assertThat(cache.isFullyPopulated()).isFalse();
+        assertThat(cache.isFullyPopulated("z")).isFalse();
+        assertThat(cache.contains("a:1")).isFalse();
+    }
+
+    @Test
+    public void evictAllForPartitionLeavesOtherShardsFullyPopulated() {
+        ShardedCache<String> cache = this.tenantCache();
+        cache.setAll(Arrays.asList("a:1", "b:1"));
+
+        cache.evictAll("a");
+
+        assertThat(cache.isFullyPopulated("a")).isFalse();
+        assertThat(cache.isFullyPopulated("b")).isTrue();
+    }
+
+    private ShardedCache<String> tenantCache() {
+        return new ShardedCache<>(value -> value, (Serializable id) -> ((String) id).substring(0, 1));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SizeEstimatingWeigherTest {
+    @Test
+    public void weighWithNullReturnsZero() {
+        SizeEstimatingWeigher<Object> weigher = new SizeEstimatingWeigher<>();
+
+        assertThat(weigher.weigh(null)).isEqualTo(0);
+    }
+
+    @Test
+    public void weighWithPrimitiveArrayIncludesElements() {
+        SizeEstimatingWeigher<Object> weigher = new SizeEstimatingWeigher<>();
+
+        assertThat(weigher.weigh(new long[10])).isEqualTo(96);
+    }
+
+    @Test
+    public void weighWithLongerStringReturnsMore() {
+        SizeEstimatingWeigher<String> weigher = new SizeEstimatingWeigher<>();
+
+        assertThat(weigher.weigh("a much longer string value")).isGreaterThan(weigher.weigh("short"));
+    }
+
+    @Test
+    public void weighWithObjectIncludesReferencedObjects() {
+        SizeEstimatingWeigher<Object> weigher = new SizeEstimatingWeigher<>();
+
+        long empty = weigher.weigh(new Holder(null, null));
+        long full = weigher.weigh(new Holder(new byte[1000], "value"));
+
+        assertThat(full - empty).isGreaterThan(1000);
+    }
+
+    @Test
+    public void weighWithSharedObjectCountsItOnce() {
+        SizeEstimatingWeigher<Object> weigher = new SizeEstimatingWeigher<>();
+        byte[] shared = new byte[1000];
+
+        long single = weigher.weigh(new Holder(shared, null));
+        long twice = weigher.weigh(Arrays.<Object>asList(new Holder(shared, null), new Holder(shared, null)));
+
+        assertThat(twice).isLessThan(2 * single);
+    }
+
+    @Test
+    public void weighWithCollectionIncludesElements() {
+        SizeEstimatingWeigher<List<String>> weigher = new SizeEstimatingWeigher<>();
+
+        assertThat(weigher.weigh(Arrays.asList("one", "two", "three"))).isGreaterThan(weigher.weigh(Arrays.asList("one")));
+    }
+
+    private static class Holder {
+        private final byte[] data;
+        private final String name;
+
+        private Holder(byte[] data, String name) {
+            this.data = data;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TieredCacheTest {
+    @Mock
+    private TimestampGenerator timestampGenerator;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void addWhenNearTierFullMovesLeastRecentlyUsedItemToFarTier() {
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(value -> value, far, 2);
+        cache.add("val1");
+        cache.add("val2");
+        cache.get("val1");
+
+        cache.add("val3");
+
+        assertThat(far.contains("val2")).isTrue();
+    }
+
+    @Test
+    public void addWhenNearTierFullKeepsRecentlyUsedItemInNearTier() {
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(value -> value, far, 2);
+        cache.add("val1");
+        cache.add("val2");
+        cache.get("val1");
+
+        cache.add("val3");
+
+        assertThat(far.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void getWhenItemInFarTierReturnsItem() {
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(value -> value, far, 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        Optional<String> result = cache.get("val1");
+
+        assertThat(result).isNotNull().contains("val1");
+    }
+
+    @Test
+    public void getWhenItemInFarTierMovesItemToNearTier() {
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(value -> value, far, 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        cache.get("val1");
+
+        assertThat(far.contains("val1")).isFalse();
+        assertThat(far.contains("val2")).isTrue();
+    }
+
+    @Test
+    public void getWhenItemMovedBetweenTiersPreservesCreatedTimestamp() {
+        when(timestampGenerator.timestamp()).thenReturn(1000000000L, 1000000001L, 1000000002L);
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(timestampGenerator, value -> value, far, 1);
+        cache.add("val1");
+        cache.add("val2");
+        cache.get("val1");
+
+        Optional<CachedItem<String>> result = far.get("val2");
+
+        assertThat(result.map(CachedItem::getCreated)).isNotNull().contains(1000000001L);
+    }
+
+    @Test
+    public void containsWhenItemInFarTierReturnsTrue() {
+        TieredCache<String> cache = new TieredCache<>(value -> value, new FileCacheTier<>(this.directory), 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        assertThat(cache.contains("val1")).isTrue();
+    }
+
+    @Test
+    public void updateWhenItemInFarTierMovesItemToNearTier() {
+        FileCacheTier<String> far = new FileCacheTier<>(this.directory);
+        TieredCache<String> cache = new TieredCache<>(value -> value, far, 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        cache.update("val1");
+
+        assertThat(far.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void deleteWhenItemInFarTierRemovesItem() {
+        TieredCache<String> cache = new TieredCache<>(value -> value, new FileCacheTier<>(this.directory), 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        cache.delete("val1");
+
+        assertThat(cache.contains("val1")).isFalse();
+    }
+
+    @Test
+    public void evictAllRemovesItemsFromBothTiers() {
+        TieredCache<String> cache = new TieredCache<>(value -> value, new FileCacheTier<>(this.directory), 1);
+        cache.add("val1");
+        cache.add("val2");
+
+        cache.evictAll();
+
+        assertThat(cache.contains("val1")).isFalse();
+        assertThat(cache.contains("val2")).isFalse();
+    }
+}
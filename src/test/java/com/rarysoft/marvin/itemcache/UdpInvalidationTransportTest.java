@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UdpInvalidationTransportTest {
+    private final BlockingQueue<InvalidationBatch> received = new LinkedBlockingQueue<>();
+
+    @Test
+    public void publishDeliversBatchToPeer() throws InterruptedException {
+        try (UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback(), Collections.emptyList());
+             UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback(), Collections.singletonList(receiver.getLocalAddress()))) {
+            receiver.subscribe(this.received::add);
+
+            sender.publish(new InvalidationBatch("node1", Collections.singletonMap("val1", 1000L)));
+
+            InvalidationBatch result = this.received.poll(5, TimeUnit.SECONDS);
+            assertThat(result).isNotNull();
+            assertThat(result.getOrigin()).isEqualTo("node1");
+            assertThat(result.getVersions()).containsEntry("val1", 1000L);
+        }
+    }
+
+    @Test
+    public void publishWithLargeBatchDeliversEveryInvalidation() throws InterruptedException {
+        try (UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback(), Collections.emptyList());
+             UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback(), Collections.singletonList(receiver.getLocalAddress()))) {
+            receiver.subscribe(this.received::add);
+            Map<Serializable, Long> versions = new LinkedHashMap<>();
+            for (int i = 0; i < 5000; i ++) {
+                versions.put("value-with-a-reasonably-long-identifier-" + i, (long) i);
+            }
+
+            sender.publish(new InvalidationBatch("node1", versions));
+
+            Set<Serializable> result = new HashSet<>();
+            InvalidationBatch batch;
+            while (result.size() < versions.size() && (batch = this.received.poll(5, TimeUnit.SECONDS)) != null) {
+                result.addAll(batch.getVersions().keySet());
+            }
+            assertThat(result).isEqualTo(versions.keySet());
+        }
+    }
+
+    @Test
+    public void publishWhenSendingToOnePeerFailsStillDeliversBatchToOtherPeers() throws InterruptedException {
+        try (UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback(), Collections.emptyList());
+             UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback(), Arrays.asList(InetSocketAddress.createUnresolved("unknown.invalid", 4446), receiver.getLocalAddress()))) {
+            receiver.subscribe(this.received::add);
+
+            assertThrows(IllegalArgumentException.class, () -> sender.publish(new InvalidationBatch("node1", Collections.singletonMap("val1", 1000L))));
+
+            InvalidationBatch result = this.received.poll(5, TimeUnit.SECONDS);
+            assertThat(result).isNotNull();
+            assertThat(result.getVersions()).containsEntry("val1", 1000L);
+        }
+    }
+
+    @Test
+    public void publishWithUnacceptedIdTypeDoesNotDeliverBatch() throws InterruptedException {
+        try (UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback(), Collections.emptyList());
+             UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback(), Collections.singletonList(receiver.getLocalAddress()))) {
+            receiver.subscribe(this.received::add);
+
+            sender.publish(new InvalidationBatch("node1", Collections.singletonMap(new WidgetId(1), 1000L)));
+
+            assertThat(this.received.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        }
+    }
+
+    @Test
+    public void publishWithAcceptedIdTypeDeliversBatch() throws InterruptedException {
+        try (UdpInvalidationTransport receiver = new UdpInvalidationTransport(loopback(), Collections.emptyList(), WidgetId.class);
+             UdpInvalidationTransport sender = new UdpInvalidationTransport(loopback(), Collections.singletonList(receiver.getLocalAddress()))) {
+            receiver.subscribe(this.received::add);
+
+            sender.publish(new InvalidationBatch("node1", Collections.singletonMap(new WidgetId(1), 1000L)));
+
+            InvalidationBatch result = this.received.poll(5, TimeUnit.SECONDS);
+            assertThat(result).isNotNull();
+            assertThat(result.getVersions()).containsEntry(new WidgetId(1), 1000L);
+        }
+    }
+
+    private static InetSocketAddress loopback() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    private static class WidgetId implements Serializable {
+        private final int value;
+
+        private WidgetId(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof WidgetId && ((WidgetId) other).value == this.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.value;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WeakInternerTest {
+    @Test
+    public void constructWithNoStripesThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new WeakInterner<String>(0));
+    }
+
+    @Test
+    public void internWithNullReturnsNull() {
+        WeakInterner<String> interner = new WeakInterner<>();
+
+        assertThat(interner.intern(null)).isNull();
+    }
+
+    @Test
+    public void internWithFirstValueReturnsSameInstance() {
+        WeakInterner<String> interner = new WeakInterner<>();
+        String value = new String("val1");
+
+        assertThat(interner.intern(value)).isSameAs(value);
+    }
+
+    @Test
+    public void internWithEqualValueReturnsFirstInstance() {
+        WeakInterner<String> interner = new WeakInterner<>();
+        String first = new String("val1");
+        interner.intern(first);
+
+        String result = interner.intern(new String("val1"));
+
+        assertThat(result).isSameAs(first);
+    }
+
+    @Test
+    public void internWithDifferentValueReturnsThatValue() {
+        WeakInterner<String> interner = new WeakInterner<>(1);
+        interner.intern(new String("val1"));
+        String second = new String("val2");
+
+        assertThat(interner.intern(second)).isSameAs(second);
+    }
+}
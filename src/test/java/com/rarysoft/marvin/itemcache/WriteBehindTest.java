@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Rarysoft Enterprises
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.rarysoft.marvin.itemcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WriteBehindTest {
+    private final List<Collection<String>> written = Collections.synchronizedList(new ArrayList<>());
+    private final List<Collection<Serializable>> deleted = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void constructorWithNonPositiveBatchSizeThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehind<>(cache, this::write, 0, 60000, 10));
+    }
+
+    @Test
+    public void constructorWithMaxPendingLowerThanBatchSizeThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehind<>(cache, this::write, 10, 60000, 5));
+    }
+
+    @Test
+    public void constructorWithNonPositiveFlushIntervalThrowsIllegalArgumentException() {
+        Cache<String> cache = new Cache<>(value -> value);
+
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehind<>(cache, this::write, 10, 0, 100));
+    }
+
+    @Test
+    public void addAddsItemToCache() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            writeBehind.add("val1");
+
+            assertThat(cache.contains("val1")).isTrue();
+        }
+    }
+
+    @Test
+    public void addBeforeBatchSizeReachedDoesNotWrite() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            writeBehind.add("val1");
+
+            assertThat(this.written).isEmpty();
+        }
+    }
+
+    @Test
+    public void flushWritesPendingItemsInOneBatch() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            writeBehind.add("val1");
+            writeBehind.add("val2");
+
+            writeBehind.flush();
+
+            assertThat(this.written).containsExactly(Arrays.asList("val1", "val2"));
+        }
+    }
+
+    @Test
+    public void flushWithMorePendingThanBatchSizeWritesSeveralBatches() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 2, 60000, 100)) {
+            writeBehind.add("val1");
+            writeBehind.add("val2");
+            writeBehind.add("val3");
+
+            writeBehind.flush();
+
+            assertThat(this.written.stream().mapToInt(Collection::size).sum()).isEqualTo(3);
+            assertThat(this.written.stream().mapToInt(Collection::size).max().orElse(0)).isLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    public void flushAfterAddAndDeleteOfSameItemWritesOnlyDeletion() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            writeBehind.add("val1");
+            writeBehind.delete("val1");
+
+            writeBehind.flush();
+
+            assertThat(this.written).containsExactly(Collections.emptyList());
+            assertThat(this.deleted).containsExactly(Collections.singletonList("val1"));
+        }
+    }
+
+    @Test
+    public void updateWhenCacheRejectsItemDoesNotQueueItem() {
+        Cache<String> cache = new Cache<>(value -> value);
+        cache.addUniqueIndex("length", String::length);
+        cache.add("val1");
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            assertThrows(IllegalStateException.class, () -> writeBehind.update("val2"));
+
+            assertThat(writeBehind.pending()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void updateWhenCacheNotSynchronizedStillQueuesItem() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.emptyList());
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            assertThrows(IllegalStateException.class, () -> writeBehind.update("val1"));
+
+            assertThat(cache.contains("val1")).isTrue();
+            assertThat(writeBehind.pending()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void deleteWhenCacheNotSynchronizedStillQueuesDeletion() {
+        Cache<String> cache = new Cache<>(value -> value, Collections.emptyList());
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100)) {
+            assertThrows(IllegalStateException.class, () -> writeBehind.delete("val1"));
+
+            assertThat(writeBehind.pending()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void addWhenBatchSizeReachedWritesInBackground() throws InterruptedException {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 2, 60000, 100)) {
+            writeBehind.add("val1");
+            writeBehind.add("val2");
+
+            for (int i = 0; i < 100 && this.written.isEmpty(); i ++) {
+                Thread.sleep(10);
+            }
+
+            assertThat(this.written).containsExactly(Arrays.asList("val1", "val2"));
+        }
+    }
+
+    @Test
+    public void flushWhenWriterFailsKeepsChangesPending() {
+        Cache<String> cache = new Cache<>(value -> value);
+        try (WriteBehind<String> writeBehind = new WriteBehind<>(cache, (items, ids) -> { throw new IllegalStateException(); }, 10, 60000, 100)) {
+            writeBehind.add("val1");
+
+            assertThrows(IllegalStateException.class, writeBehind::flush);
+
+            assertThat(writeBehind.pending()).isEqualTo(1);
+        }
+        catch (IllegalStateException e) {
+            // Closing retries the failing write.
+        }
+    }
+
+    @Test
+    public void closeWritesPendingChanges() {
+        Cache<String> cache = new Cache<>(value -> value);
+        WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100);
+        writeBehind.add("val1");
+
+        writeBehind.close();
+
+        assertThat(this.written).containsExactly(Collections.singletonList("val1"));
+    }
+
+    @Test
+    public void closeWhileAddInProgressWritesAddedItem() throws InterruptedException {
+        Cache<String> cache = new Cache<>(value -> value);
+        CountDownLatch adding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cache.addListener(event -> {
+            adding.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100);
+        Thread adder = new Thread(() -> writeBehind.add("val1"));
+        adder.start();
+        adding.await();
+        Thread closer = new Thread(writeBehind::close);
+        closer.start();
+        closer.join(100);
+
+        release.countDown();
+        adder.join();
+        closer.join();
+
+        assertThat(this.written).containsExactly(Collections.singletonList("val1"));
+    }
+
+    @Test
+    public void addWhenClosedThrowsIllegalStateException() {
+        Cache<String> cache = new Cache<>(value -> value);
+        WriteBehind<String> writeBehind = new WriteBehind<>(cache, this::write, 10, 60000, 100);
+        writeBehind.close();
+
+        assertThrows(IllegalStateException.class, () -> writeBehind.add("val1"));
+    }
+
+    private void write(Collection<String> items, Collection<Serializable> deletedIds) {
+        this.written.add(new ArrayList<>(items));
+        this.deleted.add(new ArrayList<>(deletedIds));
+    }
+}